@@ -0,0 +1,234 @@
+/* Yet Another CSV Reader. Programmed by Rob Nunn.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+package com.nunn.yacsv;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/** A {@link java.io.Reader Reader} for files that keeps several {@link java.nio.channels.AsynchronousFileChannel AsynchronousFileChannel}
+ * reads outstanding at increasing offsets, in a ring of direct buffers which are decoded in file order.
+ * Use as the data source of a {@link com.nunn.yacsv.CsvReader CsvReader} when a single synchronous reader can't keep the storage busy. */
+public class AsyncFileReader extends ChannelReader {
+	
+	private static final int CARRY = MIN_BUFFER_SIZE; // head room for bytes of a char split across two buffers
+	
+	private final AsynchronousFileChannel channel;
+	private final ByteBuffer[] ring;
+	private final Future<?>[] pending;
+	private final long[] positions;
+	private final int bufferSize;
+	private Future<?> topUp = null; // a read completing a short read of the next buffer, kept so a retried fill() waits for it
+	private int current = -1;
+	private long nextPosition;
+	private boolean endOfFile = false;
+	private long ioWaitNanos = 0;
+	private long bytesRead = 0;
+	
+	/** Creates an {@link com.nunn.yacsv.AsyncFileReader AsyncFileReader} reading a file from the start.
+	 * @param path The path to the data source.
+	 * @param charset The {@link java.nio.charset.Charset Charset} to interpret the data.
+	 * @param readDepth The count of reads to keep outstanding.
+	 * @param bufferSize The count of bytes requested by each read.
+	 * @throws IOException Thrown if the file can not be opened. */
+	public AsyncFileReader(Path path, Charset charset, int readDepth, int bufferSize) throws IOException {
+		this(open(path, charset, readDepth, bufferSize), 0, charset, readDepth, bufferSize);
+	}
+	
+	/** Checks the parameters before opening, so no channel is left open by a bad parameter. */
+	private static AsynchronousFileChannel open(Path path, Charset charset, int readDepth, int bufferSize) throws IOException {
+		if (path == null) {
+			throw new IllegalArgumentException("Parameter path can not be null.");
+		}
+		checkParameters(charset, readDepth, bufferSize);
+		return AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+	}
+	
+	/** Creates an {@link com.nunn.yacsv.AsyncFileReader AsyncFileReader} reading an open channel from the given position.
+	 * The channel is closed when this reader is closed.
+	 * @param channel The data source.
+	 * @param position The file position to start reading from.
+	 * @param charset The {@link java.nio.charset.Charset Charset} to interpret the data.
+	 * @param readDepth The count of reads to keep outstanding.
+	 * @param bufferSize The count of bytes requested by each read. */
+	public AsyncFileReader(AsynchronousFileChannel channel, long position, Charset charset, int readDepth, int bufferSize) {
+		super(null, checkedDecoder(channel, charset), ByteBuffer.allocate(0), position);
+		
+		checkParameters(charset, readDepth, bufferSize);
+		if (position < 0) {
+			throw new IllegalArgumentException("Parameter position can not be negative.");
+		}
+		
+		this.channel = channel;
+		this.bufferSize = bufferSize;
+		nextPosition = position;
+		ring = new ByteBuffer[readDepth];
+		pending = new Future<?>[readDepth];
+		positions = new long[readDepth];
+		
+		try {
+			for (int i = 0; i < readDepth; i++) {
+				ring[i] = ByteBuffer.allocateDirect(CARRY + bufferSize);
+				startRead(i);
+			}
+		}
+		catch (RuntimeException | Error e) {
+			try {
+				channel.close(); // fails the reads already started
+			}
+			catch (IOException closeError) {
+				e.addSuppressed(closeError);
+			}
+			throw e;
+		}
+	}
+	
+	private static void checkParameters(Charset charset, int readDepth, int bufferSize) {
+		if (charset == null) {
+			throw new IllegalArgumentException("Parameter charset can not be null.");
+		}
+		if (readDepth < 1) {
+			throw new IllegalArgumentException("Parameter readDepth can not be less than 1.");
+		}
+		if (bufferSize < MIN_BUFFER_SIZE) {
+			throw new IllegalArgumentException("Parameter bufferSize can not be less than " + MIN_BUFFER_SIZE + ".");
+		}
+	}
+	
+	private static CharsetDecoder checkedDecoder(AsynchronousFileChannel channel, Charset charset) {
+		if (channel == null) {
+			throw new IllegalArgumentException("Parameter channel can not be null.");
+		}
+		if (charset == null) {
+			throw new IllegalArgumentException("Parameter charset can not be null.");
+		}
+		return charset.newDecoder(); // reports malformed input, as for other file sources
+	}
+	
+	private void startRead(int slot) {
+		ByteBuffer buffer = ring[slot];
+		buffer.clear();
+		buffer.position(CARRY);
+		positions[slot] = nextPosition;
+		pending[slot] = channel.read(buffer, nextPosition);
+		nextPosition += bufferSize;
+	}
+	
+	@Override
+	protected boolean fill() throws IOException {
+		if (endOfFile) {
+			return false;
+		}
+		
+		int next = (current + 1) % ring.length;
+		ByteBuffer buffer = ring[next];
+		// the futures are only dropped once done with, so a fill() interrupted while waiting can be retried
+		int count = await(pending[next]);
+		
+		// a short read is only allowed at the end of the file, as the following reads were already issued at fixed offsets
+		if (count > 0) {
+			while (buffer.hasRemaining()) {
+				if (topUp == null) {
+					topUp = channel.read(buffer, positions[next] + buffer.position() - CARRY);
+				}
+				int more = await(topUp);
+				topUp = null;
+				if (more < 0) {
+					break;
+				}
+			}
+			count = buffer.position() - CARRY;
+		}
+		pending[next] = null;
+		
+		if (count <= 0) {
+			endOfFile = true;
+			return false;
+		}
+		
+		int leftover = bytes.remaining();
+		if (leftover > CARRY) {
+			throw new IOException("Undecodable byte sequence longer than " + CARRY + " bytes.");
+		}
+		
+		buffer.flip();
+		buffer.position(CARRY - leftover);
+		buffer.put(bytes);
+		buffer.position(CARRY - leftover);
+		bytes = buffer;
+		bytesRead += count;
+		sourcePosition += count;
+		
+		if (current > -1) {
+			startRead(current); // the previous buffer is fully consumed
+		}
+		current = next;
+		
+		return true;
+	}
+	
+	private int await(Future<?> future) throws IOException {
+		long start = System.nanoTime();
+		try {
+			return ((Integer) future.get()).intValue();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a file read.");
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+		finally {
+			ioWaitNanos += System.nanoTime() - start;
+		}
+	}
+	
+	/** Gets the total time the parser has spent blocked waiting for reads to complete, i.e. the I/O wait not hidden by the outstanding reads.
+	 * @return The time waited, in nanoseconds. */
+	public long getIoWaitNanos() {
+		return ioWaitNanos;
+	}
+	
+	/** Gets the count of bytes read from the file and handed to the parser so far.
+	 * @return The count of bytes read. */
+	public long getBytesRead() {
+		return bytesRead;
+	}
+	
+	/** Gets the count of reads kept outstanding.
+	 * @return The read depth. */
+	public int getReadDepth() {
+		return ring.length;
+	}
+	
+	@Override
+	protected void closeSource() throws IOException {
+		channel.close(); // fails any reads still outstanding
+	}
+	
+}
@@ -0,0 +1,77 @@
+/* Yet Another CSV Reader. Programmed by Rob Nunn.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+package com.nunn.yacsv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+
+/** A pool of the buffers a {@link com.nunn.yacsv.CsvReader CsvReader} reading a file needs, so readers of many small files
+ * don't each allocate them. Lock-free and bounded, see {@link com.nunn.yacsv.StripedPool StripedPool}. */
+final class BufferPool {
+	
+	static final int READ_BUFFER_SIZE = 8192;
+	static final int CELL_BUFFER_SIZE = 1024;
+	
+	private final StripedPool<Buffers> stripes;
+	
+	BufferPool(int stripeCount) {
+		stripes = new StripedPool<Buffers>(stripeCount);
+	}
+	
+	/** Creates a pool with two stripes per processor. */
+	BufferPool() {
+		stripes = new StripedPool<Buffers>();
+	}
+	
+	/** Takes a set of buffers from the pool, or creates one.
+	 * @param charset The charset the decoder of the set must decode.
+	 * @return The buffers, with an empty byte buffer in read mode and a reset decoder. */
+	Buffers acquire(Charset charset) {
+		Buffers buffers = stripes.poll();
+		if (buffers == null) {
+			buffers = new Buffers();
+		}
+		
+		if (buffers.decoder == null || ! buffers.decoder.charset().equals(charset)) {
+			buffers.decoder = charset.newDecoder();
+		}
+		else {
+			buffers.decoder.reset();
+		}
+		buffers.bytes.clear();
+		buffers.bytes.limit(0);
+		return buffers;
+	}
+	
+	/** Gives a set of buffers back to the pool. It must not be used afterwards.
+	 * @param buffers The buffers. */
+	void release(Buffers buffers) {
+		stripes.offer(buffers);
+	}
+	
+	/** The buffers of one reader. The char arrays may be replaced by the grown ones when given back. */
+	static final class Buffers {
+		
+		char[] read = new char[READ_BUFFER_SIZE];
+		char[] cells = new char[CELL_BUFFER_SIZE];
+		final ByteBuffer bytes = ByteBuffer.allocateDirect(ChannelReader.DEFAULT_BUFFER_SIZE);
+		CharsetDecoder decoder;
+		
+	}
+	
+}
@@ -0,0 +1,239 @@
+/* Yet Another CSV Reader. Programmed by Rob Nunn.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+package com.nunn.yacsv;
+
+/** A test of the value of one column, checked by a {@link com.nunn.yacsv.CsvReader CsvReader} against the chars of the cell while
+ * parsing, before any String is created. Set with {@link com.nunn.yacsv.CsvReader.Config#setFilter config.setFilter(...)};
+ * records whose cell fails the test are skipped. A missing or null cell is tested as an empty value. */
+public abstract class CellPredicate {
+	
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15 };
+	private static final int MAX_EXACT_DIGITS = 15; // any such count of digits is an exact double
+	
+	private final int column;
+	
+	/** Creates a {@link com.nunn.yacsv.CellPredicate CellPredicate} testing the given column.
+	 * @param column The index of the column to test. */
+	protected CellPredicate(int column) {
+		if (column < 0) {
+			throw new IllegalArgumentException("Parameter column can not be negative.");
+		}
+		this.column = column;
+	}
+	
+	/** Gets the index of the column tested.
+	 * @return The index of the column tested. */
+	public int getColumn() {
+		return column;
+	}
+	
+	/** Tests the value of a cell. Must not keep a reference to the chars, which are reused.
+	 * @param chars Array holding the chars of the cell.
+	 * @param start Index of the first char of the cell.
+	 * @param length Count of chars of the cell.
+	 * @return TRUE to keep the record. */
+	public abstract boolean test(char[] chars, int start, int length);
+	
+	/** Gets literals of which a cell accepted by this predicate contains at least one, so a line containing none of them
+	 * can be skipped without being parsed. Only used for lines where every cell is a plain substring of the line.
+	 * @return The literals, or null when there are none. */
+	char[][] getLiterals() {
+		return null;
+	}
+	
+	/** Creates a predicate accepting a cell equal to the given value.
+	 * @param column The index of the column to test.
+	 * @param value The value to accept.
+	 * @return The predicate. */
+	public static CellPredicate equalTo(int column, String value) {
+		if (value == null) {
+			throw new IllegalArgumentException("Parameter value can not be null.");
+		}
+		
+		final char[] expected = value.toCharArray();
+		
+		return new CellPredicate(column) {
+			@Override
+			public boolean test(char[] chars, int start, int length) {
+				return length == expected.length && regionMatches(chars, start, expected);
+			}
+			
+			@Override
+			char[][] getLiterals() {
+				return expected.length > 0 ? new char[][] { expected } : null;
+			}
+		};
+	}
+	
+	/** Creates a predicate accepting a cell starting with the given prefix.
+	 * @param column The index of the column to test.
+	 * @param prefix The prefix to accept.
+	 * @return The predicate. */
+	public static CellPredicate startsWith(int column, String prefix) {
+		if (prefix == null) {
+			throw new IllegalArgumentException("Parameter prefix can not be null.");
+		}
+		
+		final char[] expected = prefix.toCharArray();
+		
+		return new CellPredicate(column) {
+			@Override
+			public boolean test(char[] chars, int start, int length) {
+				return length >= expected.length && regionMatches(chars, start, expected);
+			}
+			
+			@Override
+			char[][] getLiterals() {
+				return expected.length > 0 ? new char[][] { expected } : null;
+			}
+		};
+	}
+	
+	/** Creates a predicate accepting a cell holding a number from min to max, inclusive. A cell which is not a number is not accepted.
+	 * @param column The index of the column to test.
+	 * @param min The lowest number to accept.
+	 * @param max The highest number to accept.
+	 * @return The predicate. */
+	public static CellPredicate between(int column, final double min, final double max) {
+		return new CellPredicate(column) {
+			@Override
+			public boolean test(char[] chars, int start, int length) {
+				double number = parseNumber(chars, start, length);
+				return number >= min && number <= max; // FALSE for NaN
+			}
+		};
+	}
+	
+	/** Creates a predicate accepting a cell equal to any of the given values.
+	 * @param column The index of the column to test.
+	 * @param values The values to accept.
+	 * @return The predicate. */
+	public static CellPredicate in(int column, String... values) {
+		if (values == null) {
+			throw new IllegalArgumentException("Parameter values can not be null.");
+		}
+		
+		final char[][] expected = new char[values.length][];
+		boolean hasEmpty = false;
+		
+		// a small open hash table, probed by the String hash of the cell chars
+		int size = Integer.highestOneBit(Math.max(values.length, 1) * 2 + 1) << 1;
+		final char[][] table = new char[size][];
+		final int mask = size - 1;
+		
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] == null) {
+				throw new IllegalArgumentException("Parameter values can not contain null.");
+			}
+			expected[i] = values[i].toCharArray();
+			hasEmpty |= expected[i].length == 0;
+			
+			int slot = values[i].hashCode() & mask;
+			while (table[slot] != null && ! values[i].contentEquals(new String(table[slot]))) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = expected[i];
+		}
+		
+		final boolean prefilter = ! hasEmpty && values.length > 0;
+		
+		return new CellPredicate(column) {
+			@Override
+			public boolean test(char[] chars, int start, int length) {
+				int hash = 0;
+				for (int i = start; i < start + length; i++) {
+					hash = 31 * hash + chars[i];
+				}
+				
+				for (int slot = hash & mask; table[slot] != null; slot = (slot + 1) & mask) {
+					if (table[slot].length == length && regionMatches(chars, start, table[slot])) {
+						return true;
+					}
+				}
+				return false;
+			}
+			
+			@Override
+			char[][] getLiterals() {
+				return prefilter ? expected : null;
+			}
+		};
+	}
+	
+	private static boolean regionMatches(char[] chars, int start, char[] expected) {
+		for (int i = 0; i < expected.length; i++) {
+			if (chars[start + i] != expected[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/** Parses a plain decimal number without creating a String, falling back to {@link java.lang.Double#parseDouble Double.parseDouble} for other forms.
+	 * @return The number, or NaN when the chars aren't a number. */
+	static double parseNumber(char[] chars, int start, int length) {
+		if (length == 0) {
+			return Double.NaN;
+		}
+		
+		int end = start + length;
+		int i = start;
+		boolean negative = false;
+		
+		if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+			negative = chars[i] == '-';
+			i++;
+		}
+		
+		long digits = 0;
+		int digitCount = 0;
+		int scale = 0;
+		boolean point = false;
+		boolean plain = i < end;
+		
+		for (; i < end && plain; i++) {
+			char letter = chars[i];
+			
+			if (letter >= '0' && letter <= '9') {
+				digits = digits * 10 + (letter - '0');
+				digitCount++;
+				if (point) {
+					scale++;
+				}
+			}
+			else if (letter == '.' && ! point) {
+				point = true;
+			}
+			else {
+				plain = false;
+			}
+		}
+		
+		if (plain && digitCount > 0 && digitCount <= MAX_EXACT_DIGITS) {
+			double number = digits / POWERS_OF_TEN[scale]; // one correctly rounded division
+			return negative ? -number : number;
+		}
+		
+		try {
+			return Double.parseDouble(new String(chars, start, length));
+		}
+		catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+	
+}
@@ -0,0 +1,234 @@
+/* Yet Another CSV Reader. Programmed by Rob Nunn.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+package com.nunn.yacsv;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/** A {@link java.io.Reader Reader} decoding straight from a {@link java.nio.channels.ReadableByteChannel ReadableByteChannel}
+ * into the caller's char array, through a reusable {@link java.nio.ByteBuffer ByteBuffer}: a heap buffer of its own, which is
+ * freed with the reader, or a direct one borrowed from a {@link com.nunn.yacsv.BufferPool BufferPool}. */
+class ChannelReader extends Reader {
+	
+	static final int DEFAULT_BUFFER_SIZE = 65536;
+	static final int MIN_BUFFER_SIZE = 16; // room for the longest byte sequence of any supported charset
+	
+	private final ReadableByteChannel channel; // null when a subclass supplies its own fill()
+	private final CharsetDecoder decoder;
+	/** Bytes read from the channel and not yet decoded, always in read mode (flipped). */
+	protected ByteBuffer bytes;
+	/** Position in the data source just past the last byte added to {@link #bytes}. */
+	protected long sourcePosition;
+	private CharBuffer chars = CharBuffer.wrap(new char[0]); // reusable wrapper of the caller's array
+	private final CharBuffer single = CharBuffer.allocate(2); // read(char[], int, 1) may need to decode a surrogate pair
+	private boolean hasLeftover = false;
+	private boolean endOfInput = false;
+	private boolean finished = false;
+	private boolean closed = false;
+	
+	ChannelReader(ReadableByteChannel channel, CharsetDecoder decoder, int bufferSize) {
+		// not direct: direct memory is only freed by a garbage collection, so readers opened one after another could exhaust it
+		this(channel, decoder, (ByteBuffer) ByteBuffer.allocate(bufferSize).limit(0), 0);
+	}
+	
+	/** @param bytes The initial buffer, in read mode.
+	 * @param sourcePosition The position in the data source of the first byte to be read. */
+	ChannelReader(ReadableByteChannel channel, CharsetDecoder decoder, ByteBuffer bytes, long sourcePosition) {
+		if (channel instanceof SelectableChannel && ! ((SelectableChannel) channel).isBlocking()) {
+			throw new IllegalArgumentException("Parameter channel can not be in non-blocking mode.");
+		}
+		this.channel = channel;
+		this.decoder = decoder;
+		this.bytes = bytes;
+		this.sourcePosition = sourcePosition;
+	}
+	
+	/** Adds more data to the {@link #bytes} buffer, keeping any bytes not yet decoded.
+	 * @return FALSE when the end of the channel has been reached.
+	 * @throws IOException Thrown if an error occurs while reading from the channel. */
+	protected boolean fill() throws IOException {
+		bytes.compact();
+		try {
+			int count;
+			int idleReads = 0;
+			
+			while ((count = channel.read(bytes)) == 0) {
+				backOff(++idleReads); // a channel with no data at hand, which a blocking channel never is
+			}
+			
+			if (count > 0) {
+				sourcePosition += count;
+				return true;
+			}
+			return false;
+		}
+		finally {
+			bytes.flip();
+		}
+	}
+	
+	private static void backOff(int idleReads) throws IOException {
+		if (idleReads < 16) {
+			Thread.yield();
+			return;
+		}
+		
+		try {
+			Thread.sleep(Math.min(idleReads - 15, 10));
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for data from the channel.");
+		}
+	}
+	
+	/** Gets the position in the data source of the next byte to be decoded, i.e. of the char returned by the next read.
+	 * @return The byte position. */
+	long getBytePosition() {
+		return sourcePosition - bytes.remaining();
+	}
+	
+	/** Gets the count of bytes the given chars were decoded from, for well-formed input. Only counted for charsets which encode each char
+	 * the same way wherever it is, without a byte order mark or shift state, so the count is exact.
+	 * @param chars Chars returned by this reader.
+	 * @param offset The index of the first char to count.
+	 * @param length The count of chars.
+	 * @return The count of bytes, or -1 if it can not be counted exactly in the charset of this reader. */
+	long encodedLength(char[] chars, int offset, int length) {
+		Charset charset = decoder.charset();
+		
+		if (StandardCharsets.UTF_8.equals(charset)) {
+			long count = 0;
+			for (int i = offset; i < offset + length; i++) {
+				char letter = chars[i];
+				count += letter < 0x80 ? 1 : letter < 0x800 || Character.isSurrogate(letter) ? 2 : 3;
+			}
+			return count;
+		}
+		else if (StandardCharsets.ISO_8859_1.equals(charset) || StandardCharsets.US_ASCII.equals(charset)) {
+			return length;
+		}
+		else if (StandardCharsets.UTF_16BE.equals(charset) || StandardCharsets.UTF_16LE.equals(charset)) {
+			return 2L * length;
+		}
+		
+		return -1;
+	}
+	
+	protected void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+	
+	/** Releases the data source, called once by {@link #close()}.
+	 * @throws IOException Thrown if an error occurs while closing the source. */
+	protected void closeSource() throws IOException {
+		channel.close();
+	}
+	
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		ensureOpen();
+		
+		if (off < 0 || len < 0 || off > cbuf.length - len) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (len == 0) {
+			return 0;
+		}
+		if (len == 1 || hasLeftover) {
+			return readSingle(cbuf, off);
+		}
+		
+		if (chars.array() != cbuf) {
+			chars = CharBuffer.wrap(cbuf);
+		}
+		chars.limit(off + len).position(off);
+		
+		return decode(chars);
+	}
+	
+	private int readSingle(char[] cbuf, int off) throws IOException {
+		if ( ! hasLeftover) {
+			single.clear();
+			if (decode(single) == -1) {
+				return -1;
+			}
+			single.flip();
+		}
+		
+		cbuf[off] = single.get();
+		hasLeftover = single.hasRemaining();
+		return 1;
+	}
+	
+	private int decode(CharBuffer out) throws IOException {
+		int start = out.position();
+		
+		while ( ! finished) {
+			CoderResult result = decoder.decode(bytes, out, endOfInput);
+			
+			if (result.isError()) {
+				result.throwException();
+			}
+			
+			if (result.isOverflow()) {
+				break;
+			}
+			else if (endOfInput) {
+				if (decoder.flush(out).isOverflow()) {
+					break;
+				}
+				finished = true;
+			}
+			else if (out.position() > start) {
+				break; // return what we have rather than block on the channel
+			}
+			else if ( ! fill()) {
+				endOfInput = true;
+			}
+		}
+		
+		int count = out.position() - start;
+		return count == 0 && finished ? -1 : count;
+	}
+	
+	@Override
+	public boolean ready() throws IOException {
+		ensureOpen();
+		return hasLeftover || bytes.hasRemaining();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		if ( ! closed) {
+			closed = true;
+			closeSource();
+		}
+	}
+	
+}
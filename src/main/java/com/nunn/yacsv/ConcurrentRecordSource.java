@@ -0,0 +1,191 @@
+/* Yet Another CSV Reader. Programmed by Rob Nunn.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+package com.nunn.yacsv;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/** Hands out the records of a {@link com.nunn.yacsv.CsvReader CsvReader} to any number of threads, a batch at a time.
+ * Each call of {@link #nextBatch()} takes the lock of the reader once and parses a whole batch, so threads synchronize once per
+ * batch rather than once per record. Batches given back with {@link #release(RecordBatch)} are reused with their arrays.
+ * <pre>
+ * RecordBatch batch;
+ * while ((batch = source.nextBatch()) != null) {
+ *     for (int i = 0; i &lt; batch.size(); i++) {
+ *         process(batch.getRecordNumber(i), batch.get(i));
+ *     }
+ *     source.release(batch);
+ * }
+ * </pre>
+ * <p>The reader must not be used by other code while this source is in use.</p> */
+public class ConcurrentRecordSource implements AutoCloseable {
+	
+	private final CsvReader reader;
+	private final int batchSize;
+	private final ConcurrentLinkedQueue<RecordBatch> pool = new ConcurrentLinkedQueue<RecordBatch>(); // released batches
+	private boolean exhausted = false; // guarded by the reader
+	private Exception pendingFailure = null; // a failure after part of a batch was read, thrown by the next call; guarded by the reader
+	
+	/** Creates a {@link com.nunn.yacsv.ConcurrentRecordSource ConcurrentRecordSource} reading from the given reader.
+	 * @param reader The reader to read records from. Closed when this source is closed.
+	 * @param batchSize The most records in a batch. */
+	public ConcurrentRecordSource(CsvReader reader, int batchSize) {
+		if (reader == null) {
+			throw new IllegalArgumentException("Parameter reader can not be null.");
+		}
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Parameter batchSize can not be less than 1.");
+		}
+		
+		this.reader = reader;
+		this.batchSize = batchSize;
+	}
+	
+	/** Creates a {@link com.nunn.yacsv.ConcurrentRecordSource ConcurrentRecordSource} reading from the given reader in batches of 4096 records.
+	 * @param reader The reader to read records from. Closed when this source is closed. */
+	public ConcurrentRecordSource(CsvReader reader) {
+		this(reader, 4096);
+	}
+	
+	/** Reads the next batch of records. May be called by any thread.
+	 * <p>If reading fails after part of a batch has been read, that part is returned and the failure is thrown by the next call,
+	 * on whichever thread makes it.</p>
+	 * @return The batch, holding at least one record, or null when all records have been read.
+	 * @throws IOException Thrown if an error occurs while reading data from the source stream, or if the reader has been closed. */
+	public RecordBatch nextBatch() throws IOException {
+		RecordBatch batch = pool.poll();
+		if (batch == null) {
+			batch = new RecordBatch(batchSize);
+		}
+		batch.released = false;
+		
+		synchronized (reader) {
+			if (pendingFailure != null) {
+				Exception failure = pendingFailure;
+				pendingFailure = null;
+				recycle(batch);
+				throwFailure(failure);
+			}
+			
+			try {
+				while ( ! exhausted && batch.size < batchSize) {
+					if (reader.readRecord()) {
+						batch.records[batch.size] = reader.getValues(batch.records[batch.size]);
+						batch.recordNumbers[batch.size] = reader.getCurrentRecord();
+						batch.size++;
+					}
+					else {
+						exhausted = true;
+					}
+				}
+			}
+			catch (IOException | RuntimeException e) {
+				if (batch.size == 0) {
+					recycle(batch);
+					throw e;
+				}
+				pendingFailure = e; // deliver the records read so far first
+			}
+		}
+		
+		if (batch.size == 0) {
+			recycle(batch);
+			return null;
+		}
+		return batch;
+	}
+	
+	private static void throwFailure(Exception failure) throws IOException {
+		if (failure instanceof IOException) {
+			throw (IOException) failure;
+		}
+		throw (RuntimeException) failure;
+	}
+	
+	/** Gives back a batch to be reused. The batch and its record arrays must not be used afterwards.
+	 * @param batch A batch returned by {@link #nextBatch()}.
+	 * @throws IllegalStateException Thrown if the batch has already been released, as it would otherwise be handed out twice. */
+	public void release(RecordBatch batch) {
+		if (batch == null) {
+			throw new IllegalArgumentException("Parameter batch can not be null.");
+		}
+		if (batch.released) {
+			throw new IllegalStateException("The batch has already been released.");
+		}
+		
+		recycle(batch);
+	}
+	
+	private void recycle(RecordBatch batch) {
+		batch.size = 0;
+		batch.released = true;
+		pool.add(batch);
+	}
+	
+	/** Closes the reader. */
+	@Override
+	public void close() {
+		synchronized (reader) {
+			reader.close();
+		}
+	}
+	
+	/** Records read together, with the number of each record as given by {@link com.nunn.yacsv.CsvReader#getCurrentRecord getCurrentRecord()}.
+	 * Used by one thread at a time. */
+	public static final class RecordBatch {
+		
+		private final String[][] records;
+		private final long[] recordNumbers;
+		private int size = 0;
+		private boolean released = false; // in the pool, waiting to be handed out again
+		
+		private RecordBatch(int batchSize) {
+			records = new String[batchSize][];
+			recordNumbers = new long[batchSize];
+		}
+		
+		/** Gets the count of records in this batch.
+		 * @return The count of records. */
+		public int size() {
+			return size;
+		}
+		
+		/** Gets the values of a record. The array is reused once the batch is released.
+		 * @param index The index of the record in this batch.
+		 * @return The values of the record. */
+		public String[] get(int index) {
+			checkIndex(index);
+			return records[index];
+		}
+		
+		/** Gets the number of a record in the data source.
+		 * @param index The index of the record in this batch.
+		 * @return The record number. */
+		public long getRecordNumber(int index) {
+			checkIndex(index);
+			return recordNumbers[index];
+		}
+		
+		private void checkIndex(int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index " + index + " is outside the batch of " + size + " records.");
+			}
+		}
+		
+	}
+	
+}
@@ -0,0 +1,207 @@
+/* Yet Another CSV Reader. Programmed by Rob Nunn.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+package com.nunn.yacsv;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+/** Copies records from a {@link com.nunn.yacsv.CsvReader CsvReader} to a {@link com.nunn.yacsv.CsvWriter CsvWriter} in one loop,
+ * keeping only the records which pass the filters and only the selected columns, optionally transforming some of them:
+ * <pre>
+ * long count = CsvPipeline.from(reader)
+ *     .withHeaders()
+ *     .filter(CellPredicate.equalTo(3, "FAILED"))
+ *     .select(0, 3, 5)
+ *     .map(5, String::trim)
+ *     .to(writer)
+ *     .run();
+ * </pre>
+ * Filters are tested against the chars of the cells while parsing, and the chars of cells which aren't transformed are copied
+ * straight from the reader's buffer to the writer's, so a String is only created for a cell given to a transform.
+ * <p>The reader and writer are not closed by the pipeline.</p> */
+public class CsvPipeline {
+	
+	private final CsvReader source;
+	private CsvWriter sink = null;
+	private CellPredicate[] filters = {};
+	private int[] columns = null; // null for every column of each record
+	private Function<String, String>[] transforms = newTransforms(0); // by column of the source
+	private boolean headers = false;
+	
+	private CsvPipeline(CsvReader source) {
+		this.source = source;
+	}
+	
+	/** Starts a pipeline reading from the given reader.
+	 * @param source The reader to read records from.
+	 * @return The pipeline. */
+	public static CsvPipeline from(CsvReader source) {
+		if (source == null) {
+			throw new IllegalArgumentException("Parameter source can not be null.");
+		}
+		return new CsvPipeline(source);
+	}
+	
+	/** Reads the first record as headers, and writes the headers of the selected columns as the first record.
+	 * @return This pipeline. */
+	public CsvPipeline withHeaders() {
+		headers = true;
+		return this;
+	}
+	
+	/** Keeps only the records passing all of the given predicates, in addition to those given before.
+	 * @param predicates The predicates a record must pass.
+	 * @return This pipeline. */
+	public CsvPipeline filter(CellPredicate... predicates) {
+		if (predicates == null) {
+			throw new IllegalArgumentException("Parameter predicates can not be null.");
+		}
+		
+		CellPredicate[] combined = new CellPredicate[filters.length + predicates.length];
+		System.arraycopy(filters, 0, combined, 0, filters.length);
+		System.arraycopy(predicates, 0, combined, filters.length, predicates.length);
+		filters = combined;
+		return this;
+	}
+	
+	/** Writes only the given columns of the source, in the given order. By default each record is written with all its columns.
+	 * @param columnIndexes The indexes of the columns of the source to write. A column may be given more than once.
+	 * @return This pipeline. */
+	public CsvPipeline select(int... columnIndexes) {
+		if (columnIndexes == null) {
+			throw new IllegalArgumentException("Parameter columnIndexes can not be null.");
+		}
+		for (int columnIndex : columnIndexes) {
+			if (columnIndex < 0) {
+				throw new IllegalArgumentException("Parameter columnIndexes can not contain a negative index.");
+			}
+		}
+		
+		columns = columnIndexes.clone();
+		return this;
+	}
+	
+	/** Transforms the values of a column of the source before they are written. Only the cells of such columns are created as Strings.
+	 * @param columnIndex The index of the column of the source to transform.
+	 * @param transform The function giving the value to write for a value read. Given null for a null cell.
+	 * @return This pipeline. */
+	public CsvPipeline map(int columnIndex, Function<String, String> transform) {
+		if (columnIndex < 0) {
+			throw new IllegalArgumentException("Parameter columnIndex can not be negative.");
+		}
+		if (transform == null) {
+			throw new IllegalArgumentException("Parameter transform can not be null.");
+		}
+		
+		if (columnIndex >= transforms.length) {
+			Function<String, String>[] grown = newTransforms(columnIndex + 1);
+			System.arraycopy(transforms, 0, grown, 0, transforms.length);
+			transforms = grown;
+		}
+		
+		Function<String, String> previous = transforms[columnIndex];
+		transforms[columnIndex] = previous == null ? transform : previous.andThen(transform);
+		return this;
+	}
+	
+	/** Sets the writer to write the records to.
+	 * @param target The writer to write to.
+	 * @return This pipeline. */
+	public CsvPipeline to(CsvWriter target) {
+		if (target == null) {
+			throw new IllegalArgumentException("Parameter target can not be null.");
+		}
+		sink = target;
+		return this;
+	}
+	
+	/** Reads all remaining records of the source and writes those kept to the sink, then flushes the sink.
+	 * The filters are added to those of the reader's config for the run, and the filters it had are restored afterwards.
+	 * @return The count of records written, not counting the headers.
+	 * @throws IOException Thrown if an error occurs while reading or writing. */
+	public long run() throws IOException {
+		if (sink == null) {
+			throw new IllegalStateException("No sink set. Call to(CsvWriter) before run().");
+		}
+		
+		if (headers && source.readHeaders()) {
+			writeHeaders();
+		}
+		
+		CellPredicate[] previousFilters = source.config.getFilter();
+		CellPredicate[] combined = new CellPredicate[previousFilters.length + filters.length];
+		System.arraycopy(previousFilters, 0, combined, 0, previousFilters.length);
+		System.arraycopy(filters, 0, combined, previousFilters.length, filters.length);
+		source.config.setFilter(combined);
+		
+		long count = 0;
+		
+		try {
+			while (source.readRecord()) {
+				if (source.getColumnCount() == 0) {
+					continue;
+				}
+				
+				if (columns == null) {
+					for (int i = 0; i < source.getColumnCount(); i++) {
+						writeCell(i);
+					}
+				}
+				else {
+					for (int i = 0; i < columns.length; i++) {
+						writeCell(columns[i]);
+					}
+				}
+				
+				sink.endRecord();
+				count++;
+			}
+		}
+		finally {
+			source.config.setFilter(previousFilters);
+		}
+		
+		sink.flush();
+		return count;
+	}
+	
+	private void writeCell(int columnIndex) throws IOException {
+		Function<String, String> transform = columnIndex < transforms.length ? transforms[columnIndex] : null;
+		
+		if (transform == null) {
+			sink.writeCell(source, columnIndex);
+		}
+		else {
+			sink.write(transform.apply(source.get(columnIndex)));
+		}
+	}
+	
+	private void writeHeaders() throws IOException {
+		int count = columns == null ? source.getHeaderCount() : columns.length;
+		
+		for (int i = 0; i < count; i++) {
+			sink.write(source.getHeader(columns == null ? i : columns[i]));
+		}
+		sink.endRecord();
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static Function<String, String>[] newTransforms(int length) {
+		return (Function<String, String>[]) new Function<?, ?>[length];
+	}
+	
+}
@@ -26,14 +26,22 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.StringReader;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Locale;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
@@ -42,11 +50,14 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 	
 	private Reader reader = null;
 	private boolean closed = false;
+	private BufferPool pool = null; // the pool the buffers were borrowed from, given back on close
+	private BufferPool.Buffers pooled = null;
+	private CsvReaderPool owner = null; // the pool this reader goes back to on close, keeping its buffers
 	
 	// this will be our working buffer to hold data chunks read in from the data file
-	private Buffer readBuffer = new Buffer(8192); // Reader.read(...) buffer
+	private Buffer readBuffer; // Reader.read(...) buffer, or the whole data source when parsing from memory
 	private Buffer columnBuffer = new Buffer(64); // INITIAL_COLUMN_BUFFER_SIZE
-	private Buffer rawBuffer = new Buffer(1024); // INITIAL_COLUMN_BUFFER_SIZE * INITIAL_COLUMN_COUNT
+	private Buffer cellBuffer = new Buffer(1024); // the chars of the cells of the current record, one after another
 	
 	// these are all more or less global loop variables to keep from needing to pass them all into various methods during parsing
 	private boolean startedColumn = false;
@@ -54,12 +65,20 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 	private boolean hasMoreData = true;
 	private int columnsCount = 0;
 	private long currentRecord = 0;
-	/** Count of data copied into buffer last read: 0 <= readCount <= readBuffer.buffer.length */
+	/** Count of chars in the read buffer: the kept tail of the current record plus the data read after it. */
 	private int readCount = 0;
 	/** A read buffer index tracking consumption of data from the read buffer. */
 	private int readBufferConsumed = 0;
 	private int lineStart = 0;
-	private String[] values = new String[16]; // INITIAL_COLUMN_COUNT
+	/** Offset in the data source of the char at index 0 of the read buffer. */
+	private long bufferOffset = 0;
+	/** Byte position in the data source of the char at index bufferByteIndex of the read buffer, or -1 when not reading from bytes.
+	 * Taken at each refill; the byte offset of a checkpoint is counted from it only when one is taken. */
+	private long bufferBytePosition = -1;
+	private int bufferByteIndex = 0;
+	private String[] values = new String[16]; // INITIAL_COLUMN_COUNT, created from the cell buffer on first use
+	private int[] cellStart = new int[16]; // INITIAL_COLUMN_COUNT
+	private int[] cellLength = new int[16]; // INITIAL_COLUMN_COUNT, -1 for a null value
 	private boolean[] isQualified = new boolean[16]; // INITIAL_COLUMN_COUNT
 	private String[] csvHeaders = {};
 	private Map<String, Integer> headerIndex = new HashMap<String, Integer>();
@@ -83,9 +102,33 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 	private EscapeMode escapeMode = CsvReader.EscapeMode.DOUBLED;
 	private EmptyCellHandling emptyCellHandling = CsvReader.EmptyCellHandling.ALWAYS_NULL;
 	private char escapeChar = Letters.QUOTE; // escapeMode == EscapeMode.BACKSLASH ? Letters.BACKSLASH : textQualifier
-	private SafetyLimiter safetyLimit = new SafetyLimiter();
+	private boolean safetySwitch = true;
+	private int maxColumns = 1000;
+	private int maxCellLength = 100000;
+	private int maxRecordLength = Integer.MAX_VALUE;
+	private long maxBufferMemory = Long.MAX_VALUE;
+	private LimitPolicy limitPolicy = LimitPolicy.THROW;
 	private boolean skipEmptyRecords = true;
 	private boolean captureRawRecord = false;
+	private CellPredicate[] filters = {};
+	private char[][] filterLiterals = null; // a record to keep contains one of these, null when any record may be kept
+	private int readBufferSize = 8192;
+	private int cellBufferSize = 1024;
+	private int initialColumnCount = 16;
+	private boolean adaptiveBuffers = false;
+	
+	// decaying maximums of the size of recent records, which adaptive buffers are sized to
+	private int recordLengthEstimate = 0;
+	private int columnCountEstimate = 0;
+	
+	// state of filtering the current record
+	private boolean filtering = false;
+	private boolean recordRejected = false; // by a filter or a limit, so the rest of the record is only parsed past
+	
+	// state of checking limits
+	private long recordOffset = 0; // offset in the data source of the first char of the current record
+	private boolean buffersGrown = false; // since buffer memory was last checked
+	private boolean parsingHeaders = false;
 	
 	// implementation for Iterator<String[]>
 	private boolean iteratorReadStatus = false;
@@ -98,7 +141,12 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 			buffer = new char[size];
 		}
 		
+		public Buffer(char[] data) {
+			buffer = data;
+		}
+		
 		public void expand(int addLength) {
+			buffersGrown = true;
 			char[] temp = new char[buffer.length + addLength];
 			System.arraycopy(buffer, 0, temp, 0, position);
 			buffer = temp;
@@ -152,6 +200,10 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 			return currentLetter == delimiterOne || currentLetter == delimiterTwo;
 		}
 		
+		public boolean matches(char letter) {
+			return letter == delimiterOne || letter == delimiterTwo;
+		}
+		
 		public boolean includeEmptyRecord() {
 			return startedColumn || columnsCount > 0 || ( ! skipEmptyRecords && (currentLetter == delimiterOne || lastLetter != delimiterOne));
 		}
@@ -159,6 +211,11 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 		public char[] getDelimiter() {
 			return new char[]{delimiterOne, delimiterTwo};
 		}
+		
+		/** @return TRUE when the letter completes a pair of delimiter chars, so it can never start a record. */
+		public boolean completesPair(char previous, char letter) {
+			return previous == delimiterOne && letter == delimiterTwo && delimiterOne != delimiterTwo;
+		}
 	}
 	
 	private class RecordDelimiterSingleChar extends RecordDelimiter {	
@@ -171,6 +228,11 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 			return currentLetter == delimiterOne;
 		}
 		
+		@Override
+		public boolean matches(char letter) {
+			return letter == delimiterOne;
+		}
+		
 		@Override
 		public boolean includeEmptyRecord() {
 			return startedColumn || columnsCount > 0 || ! skipEmptyRecords;
@@ -180,22 +242,10 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 		public char[] getDelimiter() {
 			return new char[]{delimiterOne};
 		}
-	}
-	
-	private class SafetyLimiter {
-		public void test() throws IOException {
-			if (columnsCount >= 1000) {
-				close();
-				throw new IOException("Maximum column count of 1000 exceeded in record " + currentRecord
-						+ ". Configure config.setSafetySwitch(false) if you're expecting more than 1000 columns per record to avoid this error.");
-			}
-		}
-	}
-	
-	private class SafetyLimiterNoOp extends SafetyLimiter {
+		
 		@Override
-		public void test() throws IOException {
-			// does nothing
+		public boolean completesPair(char previous, char letter) {
+			return false;
 		}
 	}
 	
@@ -231,6 +281,60 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 		NONQUOTED_NULL_QUOTED_EMPTY, ALWAYS_NULL, ALWAYS_EMPTY;
 	}
 	
+	/** What to do with a record exceeding one of the limits of a reader, see {@link com.nunn.yacsv.CsvReader.Config#setLimitPolicy setLimitPolicy(...)}. */
+	public static enum LimitPolicy {
+		/** Close the reader and throw an {@link java.io.IOException IOException}. */
+		THROW,
+		/** Skip the record, parsing past the rest of it without keeping its data, and read on. The header record is never skipped. */
+		SKIP_RECORD;
+	}
+	
+	/** A position between records, taken by {@link com.nunn.yacsv.CsvReader#checkpoint checkpoint()},
+	 * from which a new {@link com.nunn.yacsv.CsvReader CsvReader} can resume reading. Serializable so it can outlive the process.
+	 * Configuration options are not part of a checkpoint and must be set again on the resumed reader. */
+	public static final class Checkpoint implements Serializable {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final long charOffset;
+		private final long byteOffset;
+		private final long record;
+		private final String[] headers;
+		private final char lastLetter;
+		
+		private Checkpoint(long charOffset, long byteOffset, long record, String[] headers, char lastLetter) {
+			this.charOffset = charOffset;
+			this.byteOffset = byteOffset;
+			this.record = record;
+			this.headers = headers;
+			this.lastLetter = lastLetter;
+		}
+		
+		/** Gets the offset in chars of the start of the next record.
+		 * @return The char offset. */
+		public long getCharOffset() {
+			return charOffset;
+		}
+		
+		/** Gets the offset in bytes of the start of the next record. Only known for byte sources, i.e. files, channels and streams read through a channel,
+		 * in the charsets listed by {@link com.nunn.yacsv.CsvReader#checkpoint checkpoint()}.
+		 * @return The byte offset, or -1 if not known. */
+		public long getByteOffset() {
+			return byteOffset;
+		}
+		
+		/** Gets the count of records read before the checkpoint, i.e. the index the next record will have.
+		 * @return The count of records read. */
+		public long getRecordCount() {
+			return record;
+		}
+		
+		@Override
+		public String toString() {
+			return Checkpoint.class.getSimpleName() + "[charOffset=" + charOffset + ", byteOffset=" + byteOffset + ", recordCount=" + record + "]";
+		}
+	}
+	
 	/** Creates a {@link com.nunn.yacsv.CsvReader CsvReader} object using a String of data as the source.
 	 * @param data The data source.
 	 * @return A {@link com.nunn.yacsv.CsvReader CsvReader} object using the String of data as the source. */
@@ -238,7 +342,225 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 		if (data == null) {
 			throw new IllegalArgumentException("Parameter data can not be null.");
 		}
-		return new CsvReader(new StringReader(data));
+		return new CsvReader(data.toCharArray());
+	}
+	
+	/** Creates a {@link com.nunn.yacsv.CsvReader CsvReader} object using a {@link java.lang.CharSequence CharSequence} of data as the source.
+	 * The data is parsed as a single in-memory buffer with no further reads from a stream.
+	 * @param data The data source.
+	 * @return A {@link com.nunn.yacsv.CsvReader CsvReader} object using the CharSequence of data as the source. */
+	public static CsvReader parse(CharSequence data) {
+		if (data instanceof CharBuffer) {
+			return new CsvReader((CharBuffer) data);
+		}
+		return new CsvReader(toCharArray(data));
+	}
+	
+	/** Creates a {@link com.nunn.yacsv.CsvReader CsvReader} object following a file which is still being appended to, like {@code tail -f}.
+	 * At the end of the file the reader keeps its place, including any partial record, and polls for the file to grow.
+	 * The end of the data is only reached once the file has not grown for the idle timeout.
+	 * An {@link java.io.IOException IOException} is thrown when reading if the file is truncated, removed or replaced (rotated).
+	 * @param path The path to the data source.
+	 * @param charset The {@link java.nio.charset.Charset Charset} to interpret the data.
+	 * @param pollMillis The interval to check for more data at the end of the file, in milliseconds.
+	 * @param idleTimeoutMillis The time to wait for the file to grow before ending the data, in milliseconds.
+	 * @return A {@link com.nunn.yacsv.CsvReader CsvReader} object following the file. */
+	public static CsvReader follow(Path path, Charset charset, long pollMillis, long idleTimeoutMillis) {
+		if (path == null) {
+			throw new IllegalArgumentException("Parameter path can not be null.");
+		}
+		if (charset == null) {
+			throw new IllegalArgumentException("Parameter charset can not be null.");
+		}
+		if (pollMillis < 1) {
+			throw new IllegalArgumentException("Parameter pollMillis can not be less than 1.");
+		}
+		if (idleTimeoutMillis < 0) {
+			throw new IllegalArgumentException("Parameter idleTimeoutMillis can not be negative.");
+		}
+		
+		FileChannel channel = null;
+		try {
+			channel = FileChannel.open(path);
+			return new CsvReader(new FollowingFileReader(path, channel, charset.newDecoder(), pollMillis, idleTimeoutMillis));
+		}
+		catch (Exception e) {
+			if (channel != null) {
+				try {
+					channel.close();
+				}
+				catch (IOException ex) {
+					// eat the exception
+				}
+			}
+			throw new IllegalArgumentException("Could not open the given path: " + path, e);
+		}
+	}
+	
+	/** Creates a {@link com.nunn.yacsv.CsvReader CsvReader} object following a file which is still being appended to, using UTF-8 charset
+	 * and checking for more data every 100 milliseconds. See {@link com.nunn.yacsv.CsvReader#follow(Path, Charset, long, long) follow(...)}.
+	 * @param path The path to the data source.
+	 * @param idleTimeoutMillis The time to wait for the file to grow before ending the data, in milliseconds.
+	 * @return A {@link com.nunn.yacsv.CsvReader CsvReader} object following the file. */
+	public static CsvReader follow(Path path, long idleTimeoutMillis) {
+		return follow(path, StandardCharsets.UTF_8, 100, idleTimeoutMillis);
+	}
+	
+	/** Creates a {@link com.nunn.yacsv.CsvReader CsvReader} object resuming from a {@link com.nunn.yacsv.CsvReader.Checkpoint Checkpoint} taken while reading the given file.
+	 * The file is opened directly at the byte offset of the checkpoint, so none of the data before it is read again.
+	 * Record numbering and headers continue from the checkpoint.
+	 * @param path The path to the data source.
+	 * @param charset The {@link java.nio.charset.Charset Charset} to interpret the data.
+	 * @param checkpoint The checkpoint to resume from.
+	 * @return A {@link com.nunn.yacsv.CsvReader CsvReader} object reading from the checkpoint. */
+	public static CsvReader resume(Path path, Charset charset, Checkpoint checkpoint) {
+		if (path == null) {
+			throw new IllegalArgumentException("Parameter path can not be null.");
+		}
+		
+		FileChannel channel = null;
+		try {
+			channel = FileChannel.open(path);
+		}
+		catch (Exception e) {
+			throw new IllegalArgumentException("Could not open the given path: " + path, e);
+		}
+		
+		try {
+			return resume(channel, charset, checkpoint, CodingErrorAction.REPORT); // as other file sources do
+		}
+		catch (RuntimeException e) {
+			try {
+				channel.close();
+			}
+			catch (IOException ex) {
+				// eat the exception
+			}
+			throw e;
+		}
+	}
+	
+	/** Creates a {@link com.nunn.yacsv.CsvReader CsvReader} object resuming from a {@link com.nunn.yacsv.CsvReader.Checkpoint Checkpoint} taken while reading the same data.
+	 * The channel is positioned directly at the byte offset of the checkpoint, so none of the data before it is read again.
+	 * Record numbering and headers continue from the checkpoint.
+	 * @param channel The data source.
+	 * @param charset The {@link java.nio.charset.Charset Charset} to interpret the data.
+	 * @param checkpoint The checkpoint to resume from.
+	 * @return A {@link com.nunn.yacsv.CsvReader CsvReader} object reading from the checkpoint. */
+	public static CsvReader resume(SeekableByteChannel channel, Charset charset, Checkpoint checkpoint) {
+		return resume(channel, charset, checkpoint, CodingErrorAction.REPLACE);
+	}
+	
+	private static CsvReader resume(SeekableByteChannel channel, Charset charset, Checkpoint checkpoint, CodingErrorAction malformedInputAction) {
+		if (checkpoint == null) {
+			throw new IllegalArgumentException("Parameter checkpoint can not be null.");
+		}
+		if (checkpoint.byteOffset < 0) {
+			throw new IllegalArgumentException("Parameter checkpoint has no byte offset to resume from.");
+		}
+		
+		ChannelReader source = newReader(channel, charset, ChannelReader.DEFAULT_BUFFER_SIZE, malformedInputAction);
+		
+		try {
+			channel.position(checkpoint.byteOffset);
+		}
+		catch (IOException e) {
+			throw new IllegalArgumentException("Could not position the channel at byte offset " + checkpoint.byteOffset + ".", e);
+		}
+		source.sourcePosition = checkpoint.byteOffset;
+		
+		CsvReader csvReader = new CsvReader(source);
+		csvReader.bufferOffset = checkpoint.charOffset;
+		csvReader.currentRecord = checkpoint.record;
+		csvReader.lastLetter = checkpoint.lastLetter;
+		csvReader.setHeaders(checkpoint.headers);
+		return csvReader;
+	}
+	
+	/** Constructs a {@link com.nunn.yacsv.CsvReader CsvReader} object parsing directly over a char array, without copying it.
+	 * The array must not be modified while it is being parsed.
+	 * @param data The data source. */
+	public CsvReader(char[] data) {
+		this(data, 0, data == null ? 0 : data.length);
+	}
+	
+	/** Constructs a {@link com.nunn.yacsv.CsvReader CsvReader} object parsing directly over a range of a char array, without copying it.
+	 * The array must not be modified while it is being parsed.
+	 * @param data The data source.
+	 * @param offset The index of the first char to parse.
+	 * @param length The count of chars to parse. */
+	public CsvReader(char[] data, int offset, int length) {
+		if (data == null) {
+			throw new IllegalArgumentException("Parameter data can not be null.");
+		}
+		if (offset < 0 || length < 0 || offset > data.length - length) {
+			throw new IllegalArgumentException("Parameters offset and length must describe a range within data.");
+		}
+		readBuffer = new Buffer(data);
+		readBuffer.position = offset;
+		readCount = offset + length;
+		bufferOffset = -offset;
+		config = new Config(this);
+	}
+	
+	/** Constructs a {@link com.nunn.yacsv.CsvReader CsvReader} object parsing the remaining content of a {@link java.nio.CharBuffer CharBuffer}.
+	 * An array backed buffer is parsed in place without copying; the position of the buffer is not modified.
+	 * @param data The data source. */
+	public CsvReader(CharBuffer data) {
+		this(arrayOf(data), data.hasArray() ? data.arrayOffset() + data.position() : 0, data.remaining());
+	}
+	
+	/** Takes over the buffers and settings of a closed reader going back to its pool, leaving that reader without them for good.
+	 * Closed until reopened by the pool. */
+	private CsvReader(CsvReader retired) {
+		config = new Config(this);
+		closed = true;
+		
+		// the buffers are wrapped again as they belong to the reader they were made by
+		readBuffer = new Buffer(retired.readBuffer.buffer);
+		columnBuffer = new Buffer(retired.columnBuffer.buffer);
+		cellBuffer = new Buffer(retired.cellBuffer.buffer);
+		values = retired.values;
+		cellStart = retired.cellStart;
+		cellLength = retired.cellLength;
+		isQualified = retired.isQualified;
+		headerIndex = retired.headerIndex;
+		pool = retired.pool;
+		pooled = retired.pooled;
+		
+		textQualifier = retired.textQualifier;
+		trimWhitespace = retired.trimWhitespace;
+		useTextQualifier = retired.useTextQualifier;
+		cellDelimiter = retired.cellDelimiter;
+		recordDelimiter = retired.recordDelimiter instanceof RecordDelimiterSingleChar
+				? new RecordDelimiterSingleChar(retired.recordDelimiter.delimiterOne)
+				: new RecordDelimiter(retired.recordDelimiter.delimiterOne, retired.recordDelimiter.delimiterTwo);
+		comment = retired.comment;
+		useComments = retired.useComments;
+		escapeMode = retired.escapeMode;
+		emptyCellHandling = retired.emptyCellHandling;
+		escapeChar = retired.escapeChar;
+		safetySwitch = retired.safetySwitch;
+		maxColumns = retired.maxColumns;
+		maxCellLength = retired.maxCellLength;
+		maxRecordLength = retired.maxRecordLength;
+		maxBufferMemory = retired.maxBufferMemory;
+		limitPolicy = retired.limitPolicy;
+		skipEmptyRecords = retired.skipEmptyRecords;
+		captureRawRecord = retired.captureRawRecord;
+		filters = retired.filters;
+		filterLiterals = retired.filterLiterals;
+		readBufferSize = retired.readBufferSize;
+		cellBufferSize = retired.cellBufferSize;
+		initialColumnCount = retired.initialColumnCount;
+		adaptiveBuffers = retired.adaptiveBuffers;
+		
+		retired.readBuffer = null;
+		retired.columnBuffer = null;
+		retired.cellBuffer = null;
+		retired.headerIndex = new HashMap<String, Integer>();
+		retired.pool = null;
+		retired.pooled = null;
 	}
 	
 	/** Constructs a {@link com.nunn.yacsv.CsvReader CsvReader} object using a {@link java.io.Reader Reader} object as the data source.
@@ -248,9 +570,161 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 			throw new IllegalArgumentException("Parameter inputReader can not be null.");
 		}
 		reader = inputReader;
+		readBuffer = new Buffer(readBufferSize);
+		if (inputReader instanceof ChannelReader) {
+			bufferBytePosition = ((ChannelReader) inputReader).getBytePosition();
+			bufferByteIndex = 0;
+		}
 		config = new Config(this);
 	}
 	
+	/** Opens a file with buffers borrowed from the pool, which are given back when the reader is closed.
+	 * @param path The path to the data source.
+	 * @param charset The {@link java.nio.charset.Charset Charset} to interpret the data. Malformed input is reported, as for other file sources.
+	 * @param pool The pool to borrow the buffers from.
+	 * @return A {@link com.nunn.yacsv.CsvReader CsvReader} object reading the file.
+	 * @throws IOException Thrown if the file can not be opened. */
+	static CsvReader open(Path path, Charset charset, BufferPool pool) throws IOException {
+		BufferPool.Buffers buffers = pool.acquire(charset);
+		
+		CsvReader csvReader;
+		try {
+			csvReader = new CsvReader(new ChannelReader(FileChannel.open(path), buffers.decoder, buffers.bytes, 0));
+		}
+		catch (IOException | RuntimeException e) {
+			pool.release(buffers);
+			throw e;
+		}
+		
+		csvReader.readBuffer = csvReader.new Buffer(buffers.read);
+		csvReader.cellBuffer = csvReader.new Buffer(buffers.cells);
+		csvReader.pool = pool;
+		csvReader.pooled = buffers;
+		return csvReader;
+	}
+	
+	/** Starts reading a new data source, keeping the settings of {@link #config} and the buffers grown so far, so reading many
+	 * small sources costs no new buffers. The current data source is closed. All parsing state, the headers and the record count
+	 * are reset. May be called on a closed reader.
+	 * @param inputReader The new data source. */
+	public void reset(Reader inputReader) {
+		if (inputReader == null) {
+			throw new IllegalArgumentException("Parameter inputReader can not be null.");
+		}
+		reopen(inputReader, null);
+	}
+	
+	/** Starts reading a file, keeping the settings of {@link #config} and the buffers grown so far, including the byte buffer of
+	 * the current file source. See {@link #reset(Reader)}.
+	 * @param path The path to the new data source.
+	 * @param charset The {@link java.nio.charset.Charset Charset} to interpret the data. */
+	public void reset(Path path, Charset charset) {
+		if (path == null) {
+			throw new IllegalArgumentException("Parameter path can not be null.");
+		}
+		if (charset == null) {
+			throw new IllegalArgumentException("Parameter charset can not be null.");
+		}
+		
+		FileChannel channel;
+		try {
+			channel = FileChannel.open(path);
+		}
+		catch (Exception e) {
+			throw new IllegalArgumentException("Could not open the given path: " + path, e);
+		}
+		
+		// a plain file reader's byte buffer can be taken over, unless it was borrowed from a pool
+		ByteBuffer bytes = null;
+		if ( ! closed && pooled == null && reader != null && reader.getClass() == ChannelReader.class) {
+			bytes = ((ChannelReader) reader).bytes;
+			bytes.clear();
+			bytes.limit(0);
+		}
+		
+		CharsetDecoder decoder = charset.newDecoder(); // reports malformed input, as other file sources do
+		reopen(bytes != null ? new ChannelReader(channel, decoder, bytes, 0) : new ChannelReader(channel, decoder, ChannelReader.DEFAULT_BUFFER_SIZE), null);
+	}
+	
+	/** Starts reading a file using UTF-8 charset, keeping the settings of {@link #config} and the buffers grown so far. See {@link #reset(Reader)}.
+	 * @param path The path to the new data source. */
+	public void reset(Path path) {
+		reset(path, StandardCharsets.UTF_8);
+	}
+	
+	/** Closes the current data source and resets all state to read the given one.
+	 * @param owningPool The pool this reader is handed out from, or null. */
+	void reopen(Reader inputReader, CsvReaderPool owningPool) {
+		boolean parsingMemory = ! closed && reader == null; // the read buffer is the caller's data, never to be reused
+		
+		if ( ! closed && reader != null) {
+			try {
+				reader.close();
+			}
+			catch (IOException e) {
+				// eat the exception
+			}
+		}
+		if (pooled != null) {
+			pool.release(pooled);
+			pooled = null;
+			pool = null;
+			readBuffer = null;
+			cellBuffer = null;
+		}
+		
+		if (readBuffer == null || parsingMemory || adaptiveBuffers && readBuffer.buffer.length > 4 * readBufferSize) {
+			readBuffer = new Buffer(readBufferSize);
+		}
+		if (columnBuffer == null || adaptiveBuffers && columnBuffer.buffer.length > 4 * cellBufferSize) {
+			columnBuffer = new Buffer(64);
+		}
+		if (cellBuffer == null || adaptiveBuffers && cellBuffer.buffer.length > 4 * cellBufferSize) {
+			cellBuffer = new Buffer(cellBufferSize);
+		}
+		
+		reader = inputReader;
+		owner = owningPool;
+		closed = false;
+		
+		readBuffer.position = 0;
+		columnBuffer.position = 0;
+		cellBuffer.position = 0;
+		Arrays.fill(values, null);
+		
+		startedColumn = false;
+		startedWithQualifier = false;
+		hasMoreData = true;
+		columnsCount = 0;
+		currentRecord = 0;
+		readCount = 0;
+		readBufferConsumed = 0;
+		lineStart = 0;
+		bufferOffset = 0;
+		bufferBytePosition = inputReader instanceof ChannelReader ? ((ChannelReader) inputReader).getBytePosition() : -1;
+		bufferByteIndex = 0;
+		csvHeaders = new String[0];
+		headerIndex.clear();
+		lastLetter = (char) 0;
+		currentLetter = (char) 0;
+		readingComplexEscape = false;
+		escapeLength = 0;
+		escapeValue = (char) 0;
+		filtering = false;
+		recordRejected = false;
+		iteratorReadStatus = false;
+		recordLengthEstimate = 0;
+		columnCountEstimate = 0;
+		recordOffset = 0;
+		buffersGrown = false;
+	}
+	
+	/** Sets the pool this reader goes back to on close.
+	 * @param owningPool The pool, or null. */
+	void setOwner(CsvReaderPool owningPool) {
+		owner = owningPool;
+	}
+	
 	/** Constructs a {@link com.nunn.yacsv.CsvReader CsvReader} object using an {@link java.io.InputStream InputStream} object as the data source.
 	 * @param inputStream The data source.
 	 * @param charset The {@link java.nio.charset.Charset Charset} to interpret the data. */
@@ -264,6 +738,29 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 		this(newReader(inputStream, StandardCharsets.UTF_8));
 	}
 	
+	/** Constructs a {@link com.nunn.yacsv.CsvReader CsvReader} object using a {@link java.nio.channels.ReadableByteChannel ReadableByteChannel} as the data source.
+	 * Data is read from the channel in chunks of the given size into a reusable direct buffer and decoded straight into the parser's read buffer.
+	 * Malformed input is replaced, as for an {@link java.io.InputStream InputStream} source. A selectable channel must be in blocking mode.
+	 * @param channel The data source.
+	 * @param charset The {@link java.nio.charset.Charset Charset} to interpret the data.
+	 * @param bufferSize The count of bytes to read from the channel at a time. */
+	public CsvReader(ReadableByteChannel channel, Charset charset, int bufferSize) {
+		this(newReader(channel, charset, bufferSize, CodingErrorAction.REPLACE));
+	}
+	
+	/** Constructs a {@link com.nunn.yacsv.CsvReader CsvReader} object using a {@link java.nio.channels.ReadableByteChannel ReadableByteChannel} as the data source.
+	 * @param channel The data source.
+	 * @param charset The {@link java.nio.charset.Charset Charset} to interpret the data. */
+	public CsvReader(ReadableByteChannel channel, Charset charset) {
+		this(newReader(channel, charset, ChannelReader.DEFAULT_BUFFER_SIZE, CodingErrorAction.REPLACE));
+	}
+	
+	/** Constructs a {@link com.nunn.yacsv.CsvReader CsvReader} object using a {@link java.nio.channels.ReadableByteChannel ReadableByteChannel} as the data source, using UTF-8 charset.
+	 * @param channel The data source. */
+	public CsvReader(ReadableByteChannel channel) {
+		this(newReader(channel, StandardCharsets.UTF_8, ChannelReader.DEFAULT_BUFFER_SIZE, CodingErrorAction.REPLACE));
+	}
+	
 	/** Constructs a {@link com.nunn.yacsv.CsvReader CsvReader} object using a {@link java.nio.file.Path Path} object as the data source.
 	 * @param path The path to the data source.
 	 * @param charset The {@link java.nio.charset.Charset Charset} to interpret the data. */
@@ -290,6 +787,43 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 		this(newReader(fileName, StandardCharsets.UTF_8));
 	}
 	
+	private static char[] arrayOf(CharBuffer data) {
+		if (data == null) {
+			throw new IllegalArgumentException("Parameter data can not be null.");
+		}
+		if (data.hasArray()) {
+			return data.array();
+		}
+		char[] array = new char[data.remaining()];
+		data.duplicate().get(array);
+		return array;
+	}
+	
+	private static char[] toCharArray(CharSequence data) {
+		if (data == null) {
+			throw new IllegalArgumentException("Parameter data can not be null.");
+		}
+		if (data instanceof String) {
+			return ((String) data).toCharArray();
+		}
+		
+		char[] array = new char[data.length()];
+		
+		if (data instanceof StringBuilder) {
+			((StringBuilder) data).getChars(0, array.length, array, 0);
+		}
+		else if (data instanceof StringBuffer) {
+			((StringBuffer) data).getChars(0, array.length, array, 0);
+		}
+		else {
+			for (int i = 0; i < array.length; i++) {
+				array[i] = data.charAt(i);
+			}
+		}
+		
+		return array;
+	}
+	
 	private static Reader newReader(InputStream inputStream, Charset charset) {
 		if (inputStream == null) {
 			throw new IllegalArgumentException("Parameter inputStream can not be null.");
@@ -300,6 +834,24 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 		return new InputStreamReader(inputStream, charset);
 	}
 	
+	private static ChannelReader newReader(ReadableByteChannel channel, Charset charset, int bufferSize, CodingErrorAction malformedInputAction) {
+		if (channel == null) {
+			throw new IllegalArgumentException("Parameter channel can not be null.");
+		}
+		if (charset == null) {
+			throw new IllegalArgumentException("Parameter charset can not be null.");
+		}
+		if (bufferSize < ChannelReader.MIN_BUFFER_SIZE) {
+			throw new IllegalArgumentException("Parameter bufferSize can not be less than " + ChannelReader.MIN_BUFFER_SIZE + ".");
+		}
+		
+		CharsetDecoder decoder = charset.newDecoder()
+				.onMalformedInput(malformedInputAction)
+				.onUnmappableCharacter(malformedInputAction);
+		
+		return new ChannelReader(channel, decoder, bufferSize);
+	}
+	
 	private static Reader newReader(Path path, Charset charset) {
 		if (path == null) {
 			throw new IllegalArgumentException("Parameter path can not be null.");
@@ -309,7 +861,8 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 		}
 		
 		try {
-			return Files.newBufferedReader(path, charset);
+			// reports malformed input, as Files.newBufferedReader(...) does
+			return new ChannelReader(FileChannel.open(path), charset.newDecoder(), ChannelReader.DEFAULT_BUFFER_SIZE);
 		}
 		catch (Exception e) {
 			throw new IllegalArgumentException("Could not open the given path: " + path, e);
@@ -502,20 +1055,215 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 		 * Disable if the file format is known and tested. When disabled, the max column count and length are greatly increased.
 		 * @return The value of the safety switch option. */
 		public boolean getSafetySwitch() {
-			return safetyLimit.getClass().equals(SafetyLimiter.class);
+			return safetySwitch;
 		}
 		
 		/** Set the value of option to perform safe parsing. Default is TRUE.
 		 * This feature is intended to prevent excessive memory use in the case where parsing settings (e.g. Charset) don't match the format of a file.
 		 * Disable if the file format is known and tested. When disabled, the max column count and length are greatly increased.
+		 * Sets the {@link #setMaxColumns max column count} to 1000 and the {@link #setMaxCellLength max cell length} to 100,000 when enabled,
+		 * and lifts both when disabled; the limits can be set one by one afterwards.
 		 * @param safetySwitch Set TRUE to enable the safe parsing feature. */
 		public CsvReader setSafetySwitch(boolean safetySwitch) {
-			if (safetySwitch) {
-				safetyLimit = new SafetyLimiter();
+			CsvReader.this.safetySwitch = safetySwitch;
+			maxColumns = safetySwitch ? 1000 : Integer.MAX_VALUE;
+			maxCellLength = safetySwitch ? 100000 : Integer.MAX_VALUE;
+			return csvReader;
+		}
+		
+		/** Gets the most columns a record may have. Default is 1000.
+		 * @return The max column count. */
+		public int getMaxColumns() {
+			return maxColumns;
+		}
+		
+		/** Sets the most columns a record may have. Checked once per cell. Default is 1000, see {@link #setSafetySwitch setSafetySwitch(...)}.
+		 * @param max The max column count. */
+		public CsvReader setMaxColumns(int max) {
+			if (max < 1) {
+				throw new IllegalArgumentException("Parameter max can not be less than 1.");
 			}
-			else {
-				safetyLimit = new SafetyLimiterNoOp();
+			maxColumns = max;
+			return csvReader;
+		}
+		
+		/** Gets the most chars a cell may have. Default is 100,000.
+		 * @return The max cell length. */
+		public int getMaxCellLength() {
+			return maxCellLength;
+		}
+		
+		/** Sets the most chars a cell may have, counted before escapes are resolved and whitespace is trimmed.
+		 * Checked once per cell and once per refill of the read buffer, so an unclosed text qualifier can't grow the buffers
+		 * without bound. Default is 100,000, see {@link #setSafetySwitch setSafetySwitch(...)}.
+		 * @param max The max cell length. */
+		public CsvReader setMaxCellLength(int max) {
+			if (max < 1) {
+				throw new IllegalArgumentException("Parameter max can not be less than 1.");
+			}
+			maxCellLength = max;
+			return csvReader;
+		}
+		
+		/** Gets the most chars a record may have. Default is no limit.
+		 * @return The max record length, {@link java.lang.Integer#MAX_VALUE Integer.MAX_VALUE} for no limit. */
+		public int getMaxRecordLength() {
+			return maxRecordLength;
+		}
+		
+		/** Sets the most chars a record may have, counting its cells and, when reading from a stream, its delimiters and
+		 * text qualifiers. Checked once per cell and once per refill of the read buffer. Default is no limit.
+		 * @param max The max record length, {@link java.lang.Integer#MAX_VALUE Integer.MAX_VALUE} for no limit. */
+		public CsvReader setMaxRecordLength(int max) {
+			if (max < 1) {
+				throw new IllegalArgumentException("Parameter max can not be less than 1.");
+			}
+			maxRecordLength = max;
+			return csvReader;
+		}
+		
+		/** Gets the most memory the buffers of this reader may take. Default is no limit.
+		 * @return The max buffer memory in bytes, {@link java.lang.Long#MAX_VALUE Long.MAX_VALUE} for no limit. */
+		public long getMaxBufferMemory() {
+			return maxBufferMemory;
+		}
+		
+		/** Sets the most memory the buffers of this reader may take: its read, cell and column buffers at 2 bytes per char, and
+		 * the arrays of a record. The data parsed from memory is not counted. Checked when a buffer grows. Default is no limit.
+		 * @param max The max buffer memory in bytes, {@link java.lang.Long#MAX_VALUE Long.MAX_VALUE} for no limit. */
+		public CsvReader setMaxBufferMemory(long max) {
+			if (max < 1) {
+				throw new IllegalArgumentException("Parameter max can not be less than 1.");
+			}
+			maxBufferMemory = max;
+			return csvReader;
+		}
+		
+		/** Gets what is done with a record exceeding a limit. Default is {@link com.nunn.yacsv.CsvReader.LimitPolicy#THROW THROW}.
+		 * @return The limit policy. */
+		public LimitPolicy getLimitPolicy() {
+			return limitPolicy;
+		}
+		
+		/** Sets what is done with a record exceeding a limit: close the reader and throw, or skip the record and read on.
+		 * Skipped records still count in {@link com.nunn.yacsv.CsvReader#getCurrentRecord getCurrentRecord()}.
+		 * Default is {@link com.nunn.yacsv.CsvReader.LimitPolicy#THROW THROW}.
+		 * @param policy The limit policy. */
+		public CsvReader setLimitPolicy(LimitPolicy policy) {
+			if (policy == null) {
+				throw new IllegalArgumentException("Parameter policy can not be null.");
+			}
+			limitPolicy = policy;
+			return csvReader;
+		}
+		
+		/** Gets the size of the read buffer, in chars. Default is 8192.
+		 * @return The size of the read buffer. */
+		public int getReadBufferSize() {
+			return readBufferSize;
+		}
+		
+		/** Sets the size of the read buffer, in chars: the most data read from the data source at a time. Default is 8192.
+		 * The buffer is grown to this size right away, and still grows for a record longer than itself. A smaller size is used for
+		 * buffers allocated later, e.g. by {@link com.nunn.yacsv.CsvReader#reset(Reader) reset(...)}. Not used when parsing from memory.
+		 * @param size The size of the read buffer. */
+		public CsvReader setReadBufferSize(int size) {
+			if (size < 16) {
+				throw new IllegalArgumentException("Parameter size can not be less than 16.");
+			}
+			readBufferSize = size;
+			if (reader != null && readBuffer.buffer.length < size) {
+				readBuffer.buffer = Arrays.copyOf(readBuffer.buffer, size);
+			}
+			return csvReader;
+		}
+		
+		/** Gets the initial size of the buffer holding the chars of the cells of a record. Default is 1024.
+		 * @return The initial size of the cell buffer. */
+		public int getCellBufferSize() {
+			return cellBufferSize;
+		}
+		
+		/** Sets the initial size of the buffer holding the chars of the cells of a record, which grows for longer records. Default is 1024.
+		 * The buffer is grown to this size right away.
+		 * @param size The initial size of the cell buffer. */
+		public CsvReader setCellBufferSize(int size) {
+			if (size < 16) {
+				throw new IllegalArgumentException("Parameter size can not be less than 16.");
+			}
+			cellBufferSize = size;
+			if (cellBuffer.buffer.length < size) {
+				cellBuffer.buffer = Arrays.copyOf(cellBuffer.buffer, size);
+			}
+			return csvReader;
+		}
+		
+		/** Gets the count of columns the arrays of a record are initially sized for. Default is 16.
+		 * @return The initial column count. */
+		public int getInitialColumnCount() {
+			return initialColumnCount;
+		}
+		
+		/** Sets the count of columns the arrays of a record are initially sized for, which grow for records with more columns. Default is 16.
+		 * The arrays are grown to this size right away.
+		 * @param count The initial column count. */
+		public CsvReader setInitialColumnCount(int count) {
+			if (count < 1) {
+				throw new IllegalArgumentException("Parameter count can not be less than 1.");
+			}
+			initialColumnCount = count;
+			ensureColumnCapacity(count);
+			return csvReader;
+		}
+		
+		/** Gets the value of option to size buffers to the data being read. Default is FALSE.
+		 * @return The value of the adaptive buffers option. */
+		public boolean getAdaptiveBuffers() {
+			return adaptiveBuffers;
+		}
+		
+		/** Sets the value of option to size buffers to the data being read. Default is FALSE, where buffers only ever grow.
+		 * When enabled, the read buffer is sized to the length of recent records and to the chunks read by file and channel sources,
+		 * the arrays of a record are sized to the header count, and buffers which grew for a few long records shrink again once
+		 * records are short, so a long-lived reader doesn't keep the memory of its longest record. The sizes set by this config are
+		 * the least used.
+		 * @param adaptive Set TRUE to size buffers to the data being read. */
+		public CsvReader setAdaptiveBuffers(boolean adaptive) {
+			adaptiveBuffers = adaptive;
+			return csvReader;
+		}
+		
+		/** Gets the predicates a record must pass to be read. Default is none.
+		 * @return A copy of the predicates. */
+		public CellPredicate[] getFilter() {
+			return filters.clone();
+		}
+		
+		/** Sets predicates a record must pass to be read, e.g. <code>setFilter(CellPredicate.equalTo(3, "FAILED"))</code>.
+		 * They are tested against the chars of the cells while parsing, so records which fail are skipped without creating any String.
+		 * Skipped records still count in {@link com.nunn.yacsv.CsvReader#getCurrentRecord getCurrentRecord()}. The header record is not filtered.
+		 * Call with no predicates to read every record again.
+		 * @param predicates The predicates, all of which a record must pass. */
+		public CsvReader setFilter(CellPredicate... predicates) {
+			if (predicates == null) {
+				throw new IllegalArgumentException("Parameter predicates can not be null.");
 			}
+			
+			char[][] literals = null;
+			
+			for (CellPredicate predicate : predicates) {
+				if (predicate == null) {
+					throw new IllegalArgumentException("Parameter predicates can not contain null.");
+				}
+				// one predicate with literals is enough to rule out a line, so use the fewest
+				char[][] predicateLiterals = predicate.getLiterals();
+				if (predicateLiterals != null && (literals == null || predicateLiterals.length < literals.length)) {
+					literals = predicateLiterals;
+				}
+			}
+			
+			filters = predicates.clone();
+			filterLiterals = literals;
 			return csvReader;
 		}
 		
@@ -558,6 +1306,10 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 	private void setHeaders(String[] headers, int length) {
 		headerIndex.clear();
 		
+		if (adaptiveBuffers) {
+			ensureColumnCapacity(length);
+		}
+		
 		csvHeaders = new String[length];
 		System.arraycopy(headers, 0, csvHeaders, 0, length);
 		
@@ -576,21 +1328,58 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 	 * @return A copy of the current record's column values.
 	 * @throws IOException Thrown if this CSVReader has already been closed. */
 	public String[] getValues() throws IOException {
+		return getValues(null);
+	}
+	
+	/** Get all parsed column values for the current record, into the given array when its length is the column count.
+	 * @param reuse An array to reuse, or null.
+	 * @return The given array or a new one, holding the current record's column values. */
+	String[] getValues(String[] reuse) throws IOException {
 		checkClosed();
 		
 		// values.Length might be greater than columnsCount
-		String[] clone = new String[columnsCount];
-		System.arraycopy(values, 0, clone, 0, columnsCount);
+		String[] clone = reuse != null && reuse.length == columnsCount ? reuse : new String[columnsCount];
+		for (int i = 0; i < columnsCount; i++) {
+			clone[i] = value(i);
+		}
 		return clone;
 	}
 	
+	private String value(int columnIndex) {
+		String value = values[columnIndex];
+		
+		if (value == null && cellLength[columnIndex] > -1) {
+			value = new String(cellBuffer.buffer, cellStart[columnIndex], cellLength[columnIndex]);
+			values[columnIndex] = value;
+		}
+		
+		return value;
+	}
+	
+	/** Gets the chars of the cells of the current record, for copying without creating Strings.
+	 * Valid until the next record is read. Cells are located by {@link #getCellStart(int)} and {@link #getCellLength(int)}. */
+	char[] getCellChars() {
+		return cellBuffer.buffer;
+	}
+	
+	/** @return The index of the first char of the cell in {@link #getCellChars()}. */
+	int getCellStart(int columnIndex) {
+		return columnIndex > -1 && columnIndex < columnsCount ? cellStart[columnIndex] : 0;
+	}
+	
+	/** @return The count of chars of the cell, or -1 if its value is null. A column outside the record is empty, as for {@link #get(int)}. */
+	int getCellLength(int columnIndex) throws IOException {
+		checkClosed();
+		return columnIndex > -1 && columnIndex < columnsCount ? cellLength[columnIndex] : 0;
+	}
+	
 	/** Returns the current column value for a given column index.
 	 * @param columnIndex The index of the column.
 	 * @return The current column value.
 	 * @exception IOException Thrown if this CSVReader has already been closed. */
 	public String get(int columnIndex) throws IOException {
 		checkClosed();
-		return columnIndex > -1 && columnIndex < columnsCount ? values[columnIndex] : "";
+		return columnIndex > -1 && columnIndex < columnsCount ? value(columnIndex) : "";
 	}
 	
 	/** Returns the current column value for a given column header name.
@@ -608,6 +1397,44 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 		return currentRecord - 1;
 	}
 	
+	/** Takes a {@link com.nunn.yacsv.CsvReader.Checkpoint Checkpoint} at the start of the next record, from which reading can be resumed later
+	 * by {@link com.nunn.yacsv.CsvReader#resume(Path, Charset, Checkpoint) resume(...)}, e.g. after a crash.
+	 * @return A checkpoint of the position of this reader.
+	 * The byte offset is only known for charsets whose byte count can be worked out exactly from the chars: UTF-8, UTF-16BE, UTF-16LE,
+	 * ISO-8859-1 and US-ASCII. Other charsets give a checkpoint without a byte offset, which can't be resumed from.
+	 * @throws IOException Thrown if this CSVReader has already been closed.
+	 * @throws IllegalStateException Thrown if a record has been read ahead by {@link com.nunn.yacsv.CsvReader#hasNext hasNext()} and not yet returned by {@link com.nunn.yacsv.CsvReader#next next()}. */
+	public Checkpoint checkpoint() throws IOException {
+		checkClosed();
+		
+		if (iteratorReadStatus) {
+			throw new IllegalStateException("A record has been read ahead by hasNext(). Call next() before taking a checkpoint.");
+		}
+		
+		int start = hasMoreData ? readBuffer.position : Math.max(readCount, 0);
+		char previous = lastLetter;
+		
+		// step over the second char of a [\r\n] pair when it is already in the buffer, so the checkpoint is at the first char of the record
+		if (hasMoreData && start < readCount && recordDelimiter.completesPair(previous, readBuffer.buffer[start])) {
+			previous = readBuffer.buffer[start];
+			start++;
+		}
+		
+		long byteOffset = -1;
+		
+		if (bufferBytePosition > -1) {
+			ChannelReader channelReader = (ChannelReader) reader;
+			long length = start >= bufferByteIndex
+					? channelReader.encodedLength(readBuffer.buffer, bufferByteIndex, start - bufferByteIndex)
+					: channelReader.encodedLength(readBuffer.buffer, start, bufferByteIndex - start);
+			if (length > -1) {
+				byteOffset = start >= bufferByteIndex ? bufferBytePosition + length : bufferBytePosition - length;
+			}
+		}
+		
+		return new Checkpoint(bufferOffset + start, byteOffset, currentRecord, csvHeaders.clone(), previous);
+	}
+	
 	/** Gets the current record in raw state, ignoring column parsing. The captureRawRecord option must be enabled when reading a record to use this feature.
 	 * @return Raw record data.
 	 * @throws IOException Thrown if this CSVReader has already been closed. */
@@ -617,12 +1444,9 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 		String rawRecord;
 		
 		if (captureRawRecord) {
-			rawRecord = new String(rawBuffer.buffer, 0, rawBuffer.position);
-			
-			// When hasMoreData == false, all data has already been copied to the raw buffer.
-			if (hasMoreData && readBuffer.position > lineStart) {
-				rawRecord += new String(readBuffer.buffer, lineStart, readBuffer.position - lineStart - 1);
-			}
+			// the record is kept in the read buffer up to its delimiter, or up to the end of the data
+			int end = hasMoreData ? readBuffer.position - 1 : readBuffer.position;
+			rawRecord = end > lineStart ? new String(readBuffer.buffer, lineStart, end - lineStart) : "";
 		}
 		else {
 			rawRecord = null;
@@ -637,10 +1461,33 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 	public boolean readRecord() throws IOException {
 		checkClosed();
 		
+		filtering = filters.length > 0;
+		
+		for (;;) {
+			if (filtering && filterLiterals != null && skipLineWithoutLiterals()) {
+				continue;
+			}
+			
+			boolean result = parseRecord();
+			
+			// records rejected by a filter or skipped for exceeding a limit are parsed past
+			if ( ! result || ! recordRejected && ( ! filtering || acceptsMissingCells())) {
+				return result;
+			}
+		}
+	}
+	
+	private boolean parseRecord() throws IOException {
+		if (adaptiveBuffers) {
+			adaptBuffers();
+		}
+		
 		columnsCount = 0;
-		rawBuffer.position = 0;
+		cellBuffer.position = 0;
+		recordRejected = false;
 		
 		lineStart = readBuffer.position;
+		recordOffset = bufferOffset + lineStart;
 		
 		boolean hasReadNextLine = false;
 		
@@ -734,7 +1581,6 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 								
 								if (startedColumn) {
 									readBuffer.position++;
-									safetyLimit.test();
 								}
 							}
 						} while (hasMoreData && startedColumn);
@@ -753,6 +1599,7 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 						}
 						else { // skip blank line
 							lineStart = readBuffer.position + 1;
+							recordOffset = bufferOffset + lineStart;
 						}
 						
 						lastLetter = currentLetter;
@@ -808,7 +1655,6 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 								
 								if (startedColumn) {
 									readBuffer.position++;
-									safetyLimit.test();
 								}
 							}
 						} while (hasMoreData && startedColumn);
@@ -831,6 +1677,83 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 		return hasReadNextLine;
 	}
 	
+	/** Skips the next line without parsing it when none of the filter literals appears in it. Only done when the whole line is
+	 * in the read buffer and holds no text qualifier or backslash, so the line is the record and each cell a plain substring of it.
+	 * @return TRUE when a line was skipped. */
+	private boolean skipLineWithoutLiterals() {
+		int start = readBuffer.position;
+		
+		if ( ! hasMoreData || start >= readCount) {
+			return false;
+		}
+		
+		char[] data = readBuffer.buffer;
+		
+		if (useComments && data[start] == comment) {
+			return false;
+		}
+		
+		int end = start;
+		
+		for (;; end++) {
+			if (end == readCount) {
+				return false; // the record goes on past the read buffer
+			}
+			
+			char letter = data[end];
+			
+			if (recordDelimiter.matches(letter)) {
+				break;
+			}
+			else if (useTextQualifier && letter == textQualifier || escapeMode == EscapeMode.BACKSLASH && letter == Letters.BACKSLASH) {
+				return false;
+			}
+		}
+		
+		if (end == start) {
+			return false; // an empty line, left for the parser to skip or read
+		}
+		
+		for (char[] literal : filterLiterals) {
+			if (contains(data, start, end, literal)) {
+				return false;
+			}
+		}
+		
+		currentRecord++;
+		lastLetter = data[end];
+		readBuffer.position = end + 1;
+		return true;
+	}
+	
+	private static boolean contains(char[] data, int start, int end, char[] literal) {
+		char first = literal[0];
+		int last = end - literal.length;
+		
+		for (int i = start; i <= last; i++) {
+			if (data[i] == first) {
+				int j = 1;
+				while (j < literal.length && data[i + j] == literal[j]) {
+					j++;
+				}
+				if (j == literal.length) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	/** Tests the filter predicates of columns the current record doesn't have against an empty value. */
+	private boolean acceptsMissingCells() {
+		for (CellPredicate predicate : filters) {
+			if (predicate.getColumn() >= columnsCount && ! predicate.test(cellBuffer.buffer, 0, 0)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
 	private void handleComplexEscape() {
 		escapeLength++;
 		
@@ -932,35 +1855,213 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 		}
 	}
 	
+	/** Refills the read buffer as a sliding window: the part of the current record still needed, i.e. the current cell and, when
+	 * capturing raw records, the whole record, is moved to the front of the buffer and more data is read after it. The buffer is
+	 * only grown for a record or cell longer than itself, so a cell and the raw record are always one range of the buffer. */
 	private void readData() throws IOException {
-		updateCurrentValue();
+		if (reader == null) {
+			// parsing from memory: the whole source is already in the read buffer, so leave the current cell in place for endColumn()
+			hasMoreData = false;
+			return;
+		}
+		
+		if ( ! recordRejected) {
+			checkStreamLimits();
+		}
+		
+		int keep = keptStart();
+		int tail = readCount - keep;
+		int size = nextReadBufferSize(tail);
+		
+		if (size > readBuffer.buffer.length && bufferMemory() + 2L * (size - readBuffer.buffer.length) > maxBufferMemory) {
+			exceedBufferMemory();
+			keep = keptStart();
+			tail = readCount - keep;
+			size = nextReadBufferSize(tail);
+		}
+		
+		if (recordRejected) {
+			columnBuffer.position = 0;
+		}
+		
+		if (size != readBuffer.buffer.length) {
+			char[] resized = new char[size];
+			System.arraycopy(readBuffer.buffer, keep, resized, 0, tail);
+			readBuffer.buffer = resized;
+		}
+		else if (tail > 0) {
+			System.arraycopy(readBuffer.buffer, keep, readBuffer.buffer, 0, tail);
+		}
+		
+		bufferOffset += keep;
+		readBufferConsumed = Math.max(readBufferConsumed - keep, 0);
+		lineStart = Math.max(lineStart - keep, 0);
+		readBuffer.position = tail;
+		readCount = tail;
 		
-		if (captureRawRecord && readCount > 0) {
-			rawBuffer.append(readBuffer, lineStart, readCount);
+		if (reader instanceof ChannelReader) {
+			bufferBytePosition = ((ChannelReader) reader).getBytePosition(); // of the first char read into the buffer
+			bufferByteIndex = tail;
 		}
 		
+		int count;
 		try {
-			readCount = reader.read(readBuffer.buffer, 0, readBuffer.buffer.length);
+			count = reader.read(readBuffer.buffer, tail, readBuffer.buffer.length - tail);
 		}
 		catch (IOException ex) {
 			close();
 			throw ex;
 		}
 		
-		hasMoreData = readCount != -1;
+		hasMoreData = count != -1;
 		
-		readBuffer.position = 0;
-		lineStart = 0;
-		readBufferConsumed = 0;
+		if (hasMoreData) {
+			readCount += count;
+		}
+	}
+	
+	/** @return The index of the first char in the read buffer still needed by the current record: of its current cell, or of the
+	 * record when capturing raw records. The read count when nothing is needed, e.g. when the record is only parsed past. */
+	private int keptStart() {
+		int keep = readCount;
+		
+		if ( ! recordRejected) {
+			if (startedColumn) {
+				keep = Math.min(keep, readBufferConsumed);
+			}
+			if (captureRawRecord) {
+				keep = Math.min(keep, lineStart);
+			}
+		}
+		return keep;
+	}
+	
+	/** @return The size of the read buffer to keep the given count of chars of the current record and read after them. */
+	private int nextReadBufferSize(int tail) {
+		int size = readBuffer.buffer.length;
+		
+		if (adaptiveBuffers) {
+			int target = adaptiveReadBufferSize();
+			if (tail < target && (size < target || size > 4 * target)) {
+				size = target;
+			}
+		}
+		if (tail == size) { // a record or cell as long as the buffer
+			size *= 2;
+		}
+		return size;
+	}
+	
+	/** Checks the cell and record being parsed against the limits before the read buffer is refilled, so an unclosed
+	 * text qualifier or a missing record delimiter can't grow the buffers without bound. */
+	private void checkStreamLimits() throws IOException {
+		if (startedColumn && readCount - readBufferConsumed + columnBuffer.position > maxCellLength) {
+			exceedCellLength();
+		}
+		else if (bufferOffset + readCount - recordOffset > maxRecordLength) {
+			exceedRecordLength();
+		}
+	}
+	
+	private void exceedCellLength() throws IOException {
+		exceedLimit("Maximum column length of " + format(maxCellLength) + " exceeded in column " + columnsCount + " in record " + currentRecord
+				+ ". Set the SafetySwitch property to false if you're expecting column lengths greater than " + format(maxCellLength) + " characters to avoid this error.");
+	}
+	
+	private void exceedRecordLength() throws IOException {
+		exceedLimit("Maximum record length of " + format(maxRecordLength) + " exceeded in record " + currentRecord
+				+ ". Configure config.setMaxRecordLength(...) if you're expecting longer records to avoid this error.");
+	}
+	
+	private void exceedBufferMemory() throws IOException {
+		exceedLimit("Maximum buffer memory of " + format(maxBufferMemory) + " bytes exceeded in record " + currentRecord
+				+ ". Configure config.setMaxBufferMemory(...) if you're expecting records needing more memory to avoid this error.");
+	}
+	
+	/** Applies the limit policy to the current record.
+	 * @param message The message of the exception thrown. */
+	private void exceedLimit(String message) throws IOException {
+		if (limitPolicy == LimitPolicy.SKIP_RECORD && ! parsingHeaders) {
+			recordRejected = true;
+			columnBuffer.position = 0;
+			return;
+		}
+		
+		close();
+		throw new IOException(message);
+	}
+	
+	/** @return The memory taken by the buffers of this reader in bytes, not counting the data parsed from memory. */
+	private long bufferMemory() {
+		long chars = (long) cellBuffer.buffer.length + columnBuffer.buffer.length + (reader != null ? readBuffer.buffer.length : 0);
+		return 2 * chars + 17L * values.length; // a reference, two ints and a boolean per column
+	}
+	
+	private static String format(long number) {
+		return String.format(Locale.US, "%,d", number);
+	}
+	
+	/** @return The size of the read buffer for the data being read: room for several recent records, and at least a chunk of a file or channel source. */
+	private int adaptiveReadBufferSize() {
+		int size = Math.max(readBufferSize, Integer.highestOneBit(Math.min(recordLengthEstimate, 1 << 17)) * 8);
+		
+		if (reader instanceof ChannelReader) {
+			size = Math.max(size, ((ChannelReader) reader).bytes.capacity());
+		}
+		return size;
+	}
+	
+	/** Sizes the buffers of a record to recent records before the next one is parsed, shrinking those which grew for a few long records. */
+	private void adaptBuffers() {
+		// a decaying maximum, so one long record is forgotten after a few dozen short ones
+		recordLengthEstimate = Math.max(cellBuffer.position, recordLengthEstimate - (recordLengthEstimate >> 4));
+		columnCountEstimate = Math.max(columnsCount, columnCountEstimate - (columnCountEstimate >> 4));
+		
+		int cellSize = Math.max(cellBufferSize, recordLengthEstimate);
+		if (cellBuffer.buffer.length > 4 * cellSize) {
+			cellBuffer.buffer = new char[cellSize];
+		}
+		if (columnBuffer.buffer.length > 4 * cellSize) {
+			columnBuffer.buffer = new char[64];
+		}
+		
+		int columns = Math.max(Math.max(initialColumnCount, csvHeaders.length), columnCountEstimate);
+		if (values.length > 4 * columns) {
+			values = new String[columns];
+			isQualified = new boolean[columns];
+			cellStart = new int[columns];
+			cellLength = new int[columns];
+		}
+	}
+	
+	/** Grows the arrays of a record to hold at least the given count of columns. */
+	private void ensureColumnCapacity(int count) {
+		if (values.length < count) {
+			buffersGrown = true;
+			values = Arrays.copyOf(values, count);
+			isQualified = Arrays.copyOf(isQualified, count);
+			cellStart = Arrays.copyOf(cellStart, count);
+			cellLength = Arrays.copyOf(cellLength, count);
+		}
 	}
 	
 	/** Read the first record of data as column headers.
 	 * @return Whether the header record was successfully read or not.
 	 * @exception IOException Thrown if an error occurs while reading data from the source stream. */
 	public boolean readHeaders() throws IOException {
-		boolean result = readRecord();
+		checkClosed();
 		
-		setHeaders(values, columnsCount);
+		filtering = false;
+		parsingHeaders = true;
+		boolean result;
+		try {
+			result = parseRecord();
+		}
+		finally {
+			parsingHeaders = false;
+		}
+		
+		setHeaders(getValues(), columnsCount);
 		
 		if (result) {
 			currentRecord--;
@@ -990,61 +2091,124 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 	}
 	
 	private void endColumn() throws IOException {
-		String currentValue;
+		if ( ! recordRejected) {
+			checkCellLimits();
+		}
+		
+		if (recordRejected) {
+			// the rest of a rejected record is only parsed past, counting its columns
+			columnBuffer.position = 0;
+			startedColumn = false;
+			columnsCount++;
+			return;
+		}
+		
+		int start = cellBuffer.position;
+		int length;
 		
 		if (startedColumn) {
 			if (columnBuffer.position == 0) { // skip use of column buffer as it has no data - use readBuffer directly
 				if (readBufferConsumed < readBuffer.position) {
-					currentValue = new String(readBuffer.buffer, readBufferConsumed, readBuffer.getPositionTrimmed(readBufferConsumed) - readBufferConsumed);
+					cellBuffer.append(readBuffer, readBufferConsumed, readBuffer.getPositionTrimmed(readBufferConsumed));
+					length = cellBuffer.position - start;
 				}
-				else if (emptyCellHandling == EmptyCellHandling.NONQUOTED_NULL_QUOTED_EMPTY) {
-					currentValue = startedWithQualifier ? "" : null;
-				}
-				else if (emptyCellHandling == EmptyCellHandling.ALWAYS_NULL) {
-					currentValue = null;
-				}
-				else { // EmptyCellHandling.ALWAYS_EMPTY
-					currentValue = "";
+				else {
+					length = emptyCellLength();
 				}
 			}
 			else {
 				updateCurrentValue();
-				currentValue = new String(columnBuffer.buffer, 0, columnBuffer.getPositionTrimmed(0));
+				cellBuffer.append(columnBuffer, 0, columnBuffer.getPositionTrimmed(0));
+				length = cellBuffer.position - start;
 			}
 		}
-		else if (emptyCellHandling == EmptyCellHandling.NONQUOTED_NULL_QUOTED_EMPTY) {
-			currentValue = startedWithQualifier ? "" : null;
-		}
-		else if (emptyCellHandling == EmptyCellHandling.ALWAYS_NULL) {
-			currentValue = null;
-		}
-		else { // EmptyCellHandling.ALWAYS_EMPTY
-			currentValue = "";
+		else {
+			length = emptyCellLength();
 		}
 		
 		columnBuffer.position = 0;
 		startedColumn = false;
 		
-		safetyLimit.test();
+		if (buffersGrown) {
+			checkBufferMemory();
+			
+			if (recordRejected) {
+				columnsCount++;
+				return;
+			}
+		}
 		
 		// check to see if our current holder array for column chunks is still big enough to handle another column chunk
 		if (columnsCount == values.length) {
-			int newLength = values.length * 2;
-			
-			String[] holder = new String[newLength];
-			System.arraycopy(values, 0, holder, 0, values.length);
-			values = holder;
-			
-			boolean[] qualifiedHolder = new boolean[newLength];
-			System.arraycopy(isQualified, 0, qualifiedHolder, 0, isQualified.length);
-			isQualified = qualifiedHolder;
+			ensureColumnCapacity(values.length * 2);
 		}
 		
-		values[columnsCount] = currentValue;
+		values[columnsCount] = length == 0 ? "" : null; // other values are created on first use
+		cellStart[columnsCount] = start;
+		cellLength[columnsCount] = length;
 		isQualified[columnsCount] = startedWithQualifier;
+		
+		if (filtering) {
+			for (CellPredicate predicate : filters) {
+				if (predicate.getColumn() == columnsCount && ! predicate.test(cellBuffer.buffer, start, Math.max(length, 0))) {
+					recordRejected = true;
+				}
+			}
+		}
+		
 		columnsCount++;
 	}
 	
+	/** Checks the memory of the buffers against the limit after one grew. A skipped record gives back the memory it grew. */
+	private void checkBufferMemory() throws IOException {
+		buffersGrown = false;
+		
+		if (bufferMemory() > maxBufferMemory) {
+			exceedBufferMemory();
+			
+			cellBuffer.buffer = new char[cellBufferSize];
+			columnBuffer.buffer = new char[64];
+			int columns = Math.max(initialColumnCount, csvHeaders.length);
+			if (values.length > columns) {
+				values = new String[columns];
+				isQualified = new boolean[columns];
+				cellStart = new int[columns];
+				cellLength = new int[columns];
+			}
+		}
+	}
+	
+	/** Checks the column count, and the length of the cell being ended and of the record, against the limits, once per cell. */
+	private void checkCellLimits() throws IOException {
+		if (columnsCount >= maxColumns) {
+			exceedLimit("Maximum column count of " + maxColumns + " exceeded in record " + currentRecord
+					+ ". Configure config.setSafetySwitch(false) if you're expecting more than " + maxColumns + " columns per record to avoid this error.");
+		}
+		else if (startedColumn) {
+			int length = columnBuffer.position + readBuffer.position - readBufferConsumed;
+			
+			if (length > maxCellLength) {
+				exceedCellLength();
+			}
+			else if (cellBuffer.position + length > maxRecordLength) {
+				exceedRecordLength();
+			}
+		}
+	}
+	
+	/** @return The cell length representing an empty cell: 0 for an empty value, -1 for null. */
+	private int emptyCellLength() {
+		if (emptyCellHandling == EmptyCellHandling.NONQUOTED_NULL_QUOTED_EMPTY) {
+			return startedWithQualifier ? 0 : -1;
+		}
+		else if (emptyCellHandling == EmptyCellHandling.ALWAYS_NULL) {
+			return -1;
+		}
+		else { // EmptyCellHandling.ALWAYS_EMPTY
+			return 0;
+		}
+	}
+	
 	private void complexEscape(ComplexEscape escapeType, int escapeLen, char escapeVal) {
 		readingComplexEscape = true;
 		escape = escapeType;
@@ -1111,6 +2275,8 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 			
 			do {
 				if (readBuffer.position == readCount) {
+					lineStart = readCount; // nothing of a skipped line is kept
+					recordOffset = bufferOffset + readCount;
 					readData();
 				}
 				else {
@@ -1132,8 +2298,6 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 			lineStart = readBuffer.position + 1;
 		}
 		
-		rawBuffer.position = 0;
-		
 		return skippedLine;
 	}
 	
@@ -1145,7 +2309,10 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 	/** Closes and releases related resources, optionally closing underlying reader.
 	 * @param closeReader Close the underlying input reader. */
 	public void close(boolean closeReader) {
-		if (closeReader && ! closed && reader != null) {
+		if (closed) {
+			return;
+		}
+		if (closeReader && reader != null) {
 			try {
 				reader.close();
 			}
@@ -1153,9 +2320,26 @@ public class CsvReader implements AutoCloseable, Iterator<String[]>, Iterable<St
 				// eat the exception
 			}
 		}
+		if (owner != null) {
+			// the buffers go back to the pool in a new reader, so closing this one again can't close the reader handed out next
+			CsvReaderPool owningPool = owner;
+			owner = null;
+			reader = null;
+			closed = true;
+			owningPool.offer(new CsvReader(this));
+			return;
+		}
+		if (pooled != null) {
+			if (closeReader) { // otherwise the reader may still use the byte buffer
+				pooled.cells = cellBuffer.buffer; // keep the grown array
+				pool.release(pooled);
+			}
+			pooled = null;
+			pool = null;
+		}
 		readBuffer = null;
 		columnBuffer = null;
-		rawBuffer = null;
+		cellBuffer = null;
 		reader = null;
 		closed = true;
 	}
@@ -0,0 +1,116 @@
+/* Yet Another CSV Reader. Programmed by Rob Nunn.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+package com.nunn.yacsv;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/** Hands out {@link com.nunn.yacsv.CsvReader CsvReader} objects whose buffers go back to the pool when they are closed,
+ * so many small parses, e.g. one per request, don't pay for new buffers. Safe for use by many threads; lock-free and bounded.
+ * <pre>
+ * try (CsvReader reader = pool.get(new StringReader(body))) {
+ *     ...
+ * }
+ * </pre>
+ * <p>A reader must not be used once closed. Closing it again does nothing: its buffers go back to the pool in a new reader object,
+ * so a reader closed twice by mistake can't close the reader handed out next. The settings of its {@link com.nunn.yacsv.CsvReader#config config}
+ * go along with the buffers to the next use, so each use should apply the settings it needs, or a pool should serve a single kind of data.</p> */
+public final class CsvReaderPool {
+	
+	private final StripedPool<CsvReader> idle;
+	
+	/** Creates a {@link com.nunn.yacsv.CsvReaderPool CsvReaderPool} keeping at most about the given count of idle readers.
+	 * @param maxIdle The count of idle readers to keep, rounded up to a power of two. */
+	public CsvReaderPool(int maxIdle) {
+		if (maxIdle < 1) {
+			throw new IllegalArgumentException("Parameter maxIdle can not be less than 1.");
+		}
+		idle = new StripedPool<CsvReader>(maxIdle);
+	}
+	
+	/** Creates a {@link com.nunn.yacsv.CsvReaderPool CsvReaderPool} keeping at most about two idle readers per processor. */
+	public CsvReaderPool() {
+		idle = new StripedPool<CsvReader>();
+	}
+	
+	/** Gets a reader of the given data source.
+	 * @param inputReader The data source.
+	 * @return A reader, pooled or new. Goes back to the pool when closed. */
+	public CsvReader get(Reader inputReader) {
+		if (inputReader == null) {
+			throw new IllegalArgumentException("Parameter inputReader can not be null.");
+		}
+		
+		CsvReader csvReader = idle.poll();
+		if (csvReader == null) {
+			return adopt(new CsvReader(inputReader));
+		}
+		csvReader.reopen(inputReader, this);
+		return csvReader;
+	}
+	
+	/** Gets a reader of the given data.
+	 * @param data The data source.
+	 * @return A reader, pooled or new. Goes back to the pool when closed. */
+	public CsvReader get(String data) {
+		if (data == null) {
+			throw new IllegalArgumentException("Parameter data can not be null.");
+		}
+		return get(new StringReader(data));
+	}
+	
+	/** Gets a reader of the given file.
+	 * @param path The path to the data source.
+	 * @param charset The {@link java.nio.charset.Charset Charset} to interpret the data.
+	 * @return A reader, pooled or new. Goes back to the pool when closed. */
+	public CsvReader get(Path path, Charset charset) {
+		CsvReader csvReader = idle.poll();
+		if (csvReader == null) {
+			return adopt(new CsvReader(path, charset));
+		}
+		
+		try {
+			csvReader.reset(path, charset);
+		}
+		catch (RuntimeException e) {
+			offer(csvReader);
+			throw e;
+		}
+		return adopt(csvReader);
+	}
+	
+	/** Gets a reader of the given file, using UTF-8 charset.
+	 * @param path The path to the data source.
+	 * @return A reader, pooled or new. Goes back to the pool when closed. */
+	public CsvReader get(Path path) {
+		return get(path, StandardCharsets.UTF_8);
+	}
+	
+	private CsvReader adopt(CsvReader csvReader) {
+		csvReader.setOwner(this);
+		return csvReader;
+	}
+	
+	/** Takes back the buffers and settings of a closed reader, in a new reader. */
+	void offer(CsvReader csvReader) {
+		idle.offer(csvReader);
+	}
+	
+}
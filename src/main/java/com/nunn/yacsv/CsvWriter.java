@@ -22,15 +22,29 @@
  */
 package com.nunn.yacsv;
 
-import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.Arrays;
+import java.util.BitSet;
 
 import com.nunn.yacsv.CsvReader.EscapeMode;
 import com.nunn.yacsv.CsvReader.Letters;
@@ -38,9 +52,39 @@ import com.nunn.yacsv.CsvReader.Letters;
 /** A stream based writer for writing delimited text data to a file or a stream. */
 public class CsvWriter implements AutoCloseable {
 	
+	private static final int BUFFER_SIZE = 16384;
+	
 	private Writer writer = null;
 	private boolean firstColumn = true;
 	private boolean closed = false;
+	private boolean writeFailed = false; // an error writing to the underlying writer has been thrown to the caller
+	
+	// formatted output is escaped straight into this buffer, and handed to the writer a block at a time
+	private char[] buffer = new char[BUFFER_SIZE];
+	private int position = 0;
+	
+	// flags of the chars which need qualifying or escaping, from the settings below; chars past the table are looked up in the wide arrays
+	private static final int SPECIALS_SIZE = 128;
+	private static final byte QUALIFIER = 1;
+	private static final byte DELIMITER = 2;
+	private static final byte RECORD = 4;
+	private static final byte BACKSLASH = 8;
+	private final byte[] specials = new byte[SPECIALS_SIZE];
+	private char[] wideSpecials;
+	private byte[] wideSpecialFlags;
+	private String specialsRecordDelimiter = null;
+	private char specialsQualifier;
+	private char specialsDelimiter;
+	private boolean numericSafe; // none of the chars of a formatted number are special
+	
+	private static final char[] NUMERIC_LETTERS = "0123456789-.EINafinty".toCharArray(); // incl. NaN and Infinity
+	private static final int MAX_NUMBER_LENGTH = 32;
+	private static final int MAX_PLAIN_SCALE = 12; // keeps a plain BigDecimal with up to 19 digits within MAX_NUMBER_LENGTH
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17 };
+	
+	private DateTimeFormatter dateFormatter = DateTimeFormatter.ISO_LOCAL_DATE;
+	private DateTimeFormatter instantFormatter = DateTimeFormatter.ISO_INSTANT;
+	private StringBuilder formatted = null;
 	
 	/** Configuration accessor - getters and setters for CsvReader behaviour options are exposed here. */
 	public final Config config = new Config();
@@ -65,7 +109,8 @@ public class CsvWriter implements AutoCloseable {
 		if (charset == null) {
 			throw new IllegalArgumentException("Parameter charset can not be null.");
 		}
-		this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName), charset));
+		FileOutputStream stream = new FileOutputStream(fileName);
+		this.writer = EncodingWriter.supports(charset) ? new EncodingWriter(stream.getChannel(), charset) : new OutputStreamWriter(stream, charset);
 		this.delimiter = delimiter;
 	}
 	
@@ -99,7 +144,77 @@ public class CsvWriter implements AutoCloseable {
 	 * @param delimiter The character to use as the column delimiter.
 	 * @param charset The {@link java.nio.charset.Charset Charset} to use while writing the data. */
 	public CsvWriter(OutputStream outputStream, char delimiter, Charset charset) {
-		this(new OutputStreamWriter(outputStream, charset), delimiter);
+		this(newWriter(outputStream, charset), delimiter);
+	}
+	
+	/** Creates a {@link com.nunn.yacsv.CsvWriter CsvWriter} object using a {@link java.nio.channels.WritableByteChannel WritableByteChannel} to write data to.
+	 * UTF-8, US-ASCII and ISO-8859-1 are encoded straight into a reusable direct buffer.
+	 * @param channel The channel to write the column delimited data to.
+	 * @param delimiter The character to use as the column delimiter.
+	 * @param charset The {@link java.nio.charset.Charset Charset} to use while writing the data. */
+	public CsvWriter(WritableByteChannel channel, char delimiter, Charset charset) {
+		this(newWriter(channel, charset), delimiter);
+	}
+	
+	/** Creates a {@link com.nunn.yacsv.CsvWriter CsvWriter} object using a file as the data destination. The file is created, or truncated if it exists.
+	 * @param path The path to the file to output the data.
+	 * @param delimiter The character to use as the column delimiter.
+	 * @param charset The {@link java.nio.charset.Charset Charset} to use while writing the data.
+	 * @throws IOException Thrown if the file can not be opened. */
+	public CsvWriter(Path path, char delimiter, Charset charset) throws IOException {
+		this(newWriter(path, charset), delimiter);
+	}
+	
+	/** Creates a {@link com.nunn.yacsv.CsvWriter CsvWriter} object using a file as the data destination.
+	 * Uses a comma as the column delimiter and UTF-8 as the {@link java.nio.charset.Charset Charset}.
+	 * @param path The path to the file to output the data.
+	 * @throws IOException Thrown if the file can not be opened. */
+	public CsvWriter(Path path) throws IOException {
+		this(path, Letters.COMMA, StandardCharsets.UTF_8);
+	}
+	
+	private static Writer newWriter(OutputStream outputStream, Charset charset) {
+		if (outputStream == null) {
+			throw new IllegalArgumentException("Parameter outputStream can not be null.");
+		}
+		if (charset == null) {
+			throw new IllegalArgumentException("Parameter charset can not be null.");
+		}
+		// OutputStreamWriter buffers and encodes through a general purpose encoder, so is only used for other charsets
+		return EncodingWriter.supports(charset) ? new EncodingWriter(outputStream, charset) : new OutputStreamWriter(outputStream, charset);
+	}
+	
+	private static Writer newWriter(WritableByteChannel channel, Charset charset) {
+		if (channel == null) {
+			throw new IllegalArgumentException("Parameter channel can not be null.");
+		}
+		if (charset == null) {
+			throw new IllegalArgumentException("Parameter charset can not be null.");
+		}
+		return EncodingWriter.supports(charset) ? new EncodingWriter(channel, charset) : Channels.newWriter(channel, charset.newEncoder(), -1);
+	}
+	
+	private static Writer newWriter(Path path, Charset charset) throws IOException {
+		if (path == null) {
+			throw new IllegalArgumentException("Parameter path can not be null.");
+		}
+		if (charset == null) {
+			throw new IllegalArgumentException("Parameter charset can not be null."); // before the file is truncated
+		}
+		
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		try {
+			return newWriter(channel, charset);
+		}
+		catch (RuntimeException | Error e) {
+			try {
+				channel.close();
+			}
+			catch (IOException closeError) {
+				e.addSuppressed(closeError);
+			}
+			throw e;
+		}
 	}
 	
 	public class Config {
@@ -181,6 +296,38 @@ public class CsvWriter implements AutoCloseable {
 			forceQualifier = newForceQualifier;
 		}
 		
+		/** Gets the formatter used by {@link com.nunn.yacsv.CsvWriter#writeDate(LocalDate)}.
+		 * @return The date formatter. */
+		public DateTimeFormatter getDateFormatter() {
+			return dateFormatter;
+		}
+		
+		/** Sets the formatter used by {@link com.nunn.yacsv.CsvWriter#writeDate(LocalDate)}. Default is {@link java.time.format.DateTimeFormatter#ISO_LOCAL_DATE ISO_LOCAL_DATE},
+		 * which is formatted without going through the formatter.
+		 * @param newDateFormatter The date formatter. */
+		public void setDateFormatter(DateTimeFormatter newDateFormatter) {
+			if (newDateFormatter == null) {
+				throw new IllegalArgumentException("Parameter newDateFormatter can not be null.");
+			}
+			dateFormatter = newDateFormatter;
+		}
+		
+		/** Gets the formatter used by {@link com.nunn.yacsv.CsvWriter#writeInstant(Instant)}.
+		 * @return The instant formatter. */
+		public DateTimeFormatter getInstantFormatter() {
+			return instantFormatter;
+		}
+		
+		/** Sets the formatter used by {@link com.nunn.yacsv.CsvWriter#writeInstant(Instant)}. Default is {@link java.time.format.DateTimeFormatter#ISO_INSTANT ISO_INSTANT}.
+		 * A pattern based formatter needs a zone to format an instant.
+		 * @param newInstantFormatter The instant formatter. */
+		public void setInstantFormatter(DateTimeFormatter newInstantFormatter) {
+			if (newInstantFormatter == null) {
+				throw new IllegalArgumentException("Parameter newInstantFormatter can not be null.");
+			}
+			instantFormatter = newInstantFormatter;
+		}
+		
 	}
 	
 	public void writeTrimmed(String content) throws IOException {
@@ -189,27 +336,19 @@ public class CsvWriter implements AutoCloseable {
 		if (content == null) {
 			content = "";
 		}
-		else if ( ! content.isEmpty()) {
-			content = content.trim();
-		}
 		
-		if (!firstColumn) {
-			writer.write(delimiter);
-		}
-		
-		boolean textQualify = forceQualifier;
+		// trims as String.trim() does, without the copy
+		int start = 0;
+		int end = content.length();
 		
-		if ( ! textQualify && useTextQualifier
-				&& (content.indexOf(textQualifier) > -1
-						|| content.indexOf(delimiter) > -1
-						|| content.indexOf(recordDelimiter) > -1
-						|| (firstColumn && (content.isEmpty() || content.charAt(0) == commentChar)))) {
-		// check for empty first column, which if on its own line must
-		// be qualified or the line will be skipped
-			textQualify = true;
+		while (start < end && content.charAt(start) <= Letters.SPACE) {
+			start++;
+		}
+		while (end > start && content.charAt(end - 1) <= Letters.SPACE) {
+			end--;
 		}
 		
-		doWrite(content, textQualify);
+		writeCell(content, start, end, false);
 	}
 	
 	/** Writes another column of data to this record. Does not preserve leading and trailing whitespace in this column of data.
@@ -218,91 +357,517 @@ public class CsvWriter implements AutoCloseable {
 	public void write(String content) throws IOException {
 		checkClosed();
 		
+		writeValue(content);
+	}
+	
+	/** Writes another column of data to this record, copying the chars straight from the sequence. Writes an empty column for null.
+	 * @param content The data for the new column.
+	 * @exception IOException Thrown if an error occurs while writing data to the destination stream. */
+	public void write(CharSequence content) throws IOException {
+		checkClosed();
+		
+		if (content == null || content instanceof String) {
+			writeValue((String) content);
+			return;
+		}
+		
+		int length = content.length();
+		startCell(length);
+		
+		if (content instanceof StringBuilder) {
+			((StringBuilder) content).getChars(0, length, buffer, position);
+		}
+		else if (content instanceof StringBuffer) {
+			((StringBuffer) content).getChars(0, length, buffer, position);
+		}
+		else if (content instanceof CharBuffer && ((CharBuffer) content).hasArray()) {
+			CharBuffer chars = (CharBuffer) content;
+			System.arraycopy(chars.array(), chars.arrayOffset() + chars.position(), buffer, position, length);
+		}
+		else {
+			for (int i = 0; i < length; i++) {
+				buffer[position + i] = content.charAt(i);
+			}
+		}
+		
+		endCell(position, length, true);
+	}
+	
+	/** Writes another column of data to this record from a range of a char array, such as a parser's buffer.
+	 * @param data The array holding the data for the new column.
+	 * @param offset The index of the first char of the column.
+	 * @param length The count of chars of the column.
+	 * @exception IOException Thrown if an error occurs while writing data to the destination stream. */
+	public void write(char[] data, int offset, int length) throws IOException {
+		checkClosed();
+		
+		if (data == null) {
+			throw new IllegalArgumentException("Parameter data can not be null.");
+		}
+		if (offset < 0 || length < 0 || offset > data.length - length) {
+			throw new IllegalArgumentException("Parameters offset and length must describe a range within data.");
+		}
+		
+		startCell(length);
+		System.arraycopy(data, offset, buffer, position, length);
+		endCell(position, length, true);
+	}
+	
+	private void writeValue(String content) throws IOException {
 		if (content == null) {
 			content = "";
 		}
 		
+		writeCell(content, 0, content.length(), true);
+	}
+	
+	/** Writes another column of data to this record, formatted as a decimal integer.
+	 * @param value The data for the new column.
+	 * @exception IOException Thrown if an error occurs while writing data to the destination stream. */
+	public void write(long value) throws IOException {
+		checkClosed();
+		writeLong(value);
+	}
+	
+	private void writeLong(long value) throws IOException {
+		int start = startNumber();
+		position = putLong(value, buffer, start);
+		endNumber(start);
+	}
+	
+	/** Writes another column of data to this record, formatted as a decimal integer.
+	 * @param value The data for the new column.
+	 * @exception IOException Thrown if an error occurs while writing data to the destination stream. */
+	public void write(int value) throws IOException {
+		write((long) value);
+	}
+	
+	/** Writes another column of data to this record. Values from 0.001 up to 10,000,000 are written in plain notation, with the fewest
+	 * digits that read back as the same double, and integral values without a fraction. Others are written as by {@link java.lang.Double#toString(double)}.
+	 * @param value The data for the new column.
+	 * @exception IOException Thrown if an error occurs while writing data to the destination stream. */
+	public void write(double value) throws IOException {
+		checkClosed();
+		writeDouble(value);
+	}
+	
+	private void writeDouble(double value) throws IOException {
+		int start = startNumber();
+		position = putDouble(value, buffer, start);
+		endNumber(start);
+	}
+	
+	/** Writes another column of data to this record, in plain notation without an exponent. Writes an empty column for null.
+	 * @param value The data for the new column.
+	 * @exception IOException Thrown if an error occurs while writing data to the destination stream. */
+	public void writeDecimal(BigDecimal value) throws IOException {
+		if (value == null) {
+			write((String) null);
+			return;
+		}
+		
+		checkClosed();
+		
+		int scale = value.scale();
+		BigInteger unscaled = value.unscaledValue();
+		
+		if (unscaled.bitLength() < 64 && scale >= -MAX_PLAIN_SCALE && scale <= MAX_PLAIN_SCALE) {
+			int start = startNumber();
+			position = putDecimal(unscaled.longValue(), scale, buffer, start);
+			endNumber(start);
+		}
+		else {
+			write(value.toPlainString());
+		}
+	}
+	
+	/** Writes another column of data to this record, formatted with the date formatter of the {@link #config}. Writes an empty column for null.
+	 * @param value The data for the new column.
+	 * @exception IOException Thrown if an error occurs while writing data to the destination stream. */
+	public void writeDate(LocalDate value) throws IOException {
+		if (value == null) {
+			write((String) null);
+			return;
+		}
+		
+		checkClosed();
+		
+		int year = value.getYear();
+		
+		if (dateFormatter == DateTimeFormatter.ISO_LOCAL_DATE && year >= 0 && year <= 9999) {
+			int start = startNumber();
+			putDigits(year, 4, buffer, start);
+			buffer[start + 4] = '-';
+			putDigits(value.getMonthValue(), 2, buffer, start + 5);
+			buffer[start + 7] = '-';
+			putDigits(value.getDayOfMonth(), 2, buffer, start + 8);
+			position = start + 10;
+			endNumber(start);
+		}
+		else {
+			writeFormatted(dateFormatter, value);
+		}
+	}
+	
+	/** Writes another column of data to this record, formatted with the instant formatter of the {@link #config}. Writes an empty column for null.
+	 * @param value The data for the new column.
+	 * @exception IOException Thrown if an error occurs while writing data to the destination stream. */
+	public void writeInstant(Instant value) throws IOException {
+		if (value == null) {
+			write((String) null);
+			return;
+		}
+		
+		checkClosed();
+		writeFormatted(instantFormatter, value);
+	}
+	
+	/** Formats into a reusable builder rather than a new String, as a formatter writing to any other Appendable builds one anyway. */
+	private void writeFormatted(DateTimeFormatter formatter, TemporalAccessor value) throws IOException {
+		if (formatted == null) {
+			formatted = new StringBuilder();
+		}
+		formatted.setLength(0);
+		formatter.formatTo(value, formatted);
+		
+		int length = formatted.length();
+		startCell(length);
+		formatted.getChars(0, length, buffer, position);
+		endCell(position, length, true);
+	}
+	
+	/** Writes the delimiter and makes room for a number of up to {@link #MAX_NUMBER_LENGTH} chars.
+	 * @return The buffer index to format the number at. */
+	private int startNumber() throws IOException {
 		if (!firstColumn) {
-			writer.write(delimiter);
+			append(delimiter);
+		}
+		
+		reserve((MAX_NUMBER_LENGTH << 1) + 2); // room to escape it as any other cell, should the settings need it
+		return position;
+	}
+	
+	/** Ends a number formatted into the buffer at the given index. Skips the scan for special chars unless the settings make some char of a number special. */
+	private void endNumber(int start) {
+		checkSpecials();
+		
+		if (numericSafe && ! forceQualifier && ! (firstColumn && buffer[start] == commentChar)) {
+			firstColumn = false;
+		}
+		else {
+			endCell(start, position - start, false);
 		}
+	}
+	
+	/** Puts the decimal digits of the value, with a leading minus sign if negative.
+	 * @return The index just past the last char. */
+	private static int putLong(long value, char[] out, int index) {
+		long negative = value < 0 ? value : -value; // the negative range also holds Long.MIN_VALUE
+		int digits = 1;
 		
-		boolean textQualify = forceQualifier;
+		for (long bound = -10; digits < 19 && negative <= bound; bound *= 10) {
+			digits++;
+		}
 		
-		if ( ! textQualify && useTextQualifier
-				&& (content.indexOf(textQualifier) > -1
-						|| content.indexOf(delimiter) > -1
-						|| content.indexOf(recordDelimiter) > -1
-						|| (firstColumn && (content.isEmpty() || content.charAt(0) == commentChar)))) {
-		// check for empty first column, which if on its own line must
-		// be qualified or the line will be skipped
-			textQualify = true;
+		if (value < 0) {
+			out[index++] = '-';
 		}
 		
-		if (useTextQualifier && !textQualify && ! content.isEmpty()) {
-			char firstLetter = content.charAt(0);
-			
-			if (firstLetter == Letters.SPACE || firstLetter == Letters.TAB) {
-				textQualify = true;
+		int end = index + digits;
+		for (int i = end - 1; i >= index; i--) {
+			out[i] = (char) ('0' - negative % 10);
+			negative /= 10;
+		}
+		return end;
+	}
+	
+	/** Puts the value zero padded to the given count of digits. */
+	private static void putDigits(int value, int digits, char[] out, int index) {
+		for (int i = index + digits - 1; i >= index; i--) {
+			out[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+	}
+	
+	/** Puts unscaled * 10^-scale in plain notation, with at least one digit before any decimal point.
+	 * @return The index just past the last char. */
+	private static int putDecimal(long unscaled, int scale, char[] out, int index) {
+		int end = putLong(unscaled, out, index);
+		
+		if (unscaled == 0) {
+			if (scale <= 0) {
+				return end;
 			}
-			
-			if (!textQualify && content.length() > 1) {
-				char lastLetter = content.charAt(content.length() - 1);
+		}
+		else if (scale < 0) {
+			Arrays.fill(out, end, end - scale, '0');
+			return end - scale;
+		}
+		else if (scale == 0) {
+			return end;
+		}
+		
+		int digitsStart = unscaled < 0 ? index + 1 : index;
+		int digits = end - digitsStart;
+		int leadingZeros = scale + 1 - digits;
+		
+		if (leadingZeros > 0) {
+			System.arraycopy(out, digitsStart, out, digitsStart + leadingZeros, digits);
+			Arrays.fill(out, digitsStart, digitsStart + leadingZeros, '0');
+			end += leadingZeros;
+		}
+		
+		System.arraycopy(out, end - scale, out, end - scale + 1, scale);
+		out[end - scale] = '.';
+		return end + 1;
+	}
+	
+	/** Puts the value with the fewest decimals that read back as the same double, found by checking (long) (value * 10^k) / 10^k == value
+	 * for increasing k. The check is exact while the scaled value stays below 2^53, as both operands of the division are then exact.
+	 * @return The index just past the last char. */
+	private static int putDouble(double value, char[] out, int index) {
+		double magnitude = Math.abs(value);
+		
+		if (magnitude >= 1e-3 && magnitude < 1e7) {
+			for (int k = 0; k < POWERS_OF_TEN.length; k++) {
+				double scaled = magnitude * POWERS_OF_TEN[k];
+				if (scaled >= 0x1p53) {
+					break;
+				}
 				
-				if (lastLetter == Letters.SPACE || lastLetter == Letters.TAB) {
-					textQualify = true;
+				long digits = Math.round(scaled);
+				if (digits / POWERS_OF_TEN[k] == magnitude) {
+					return putDecimal(value < 0 ? -digits : digits, k, out, index);
 				}
 			}
 		}
+		else if (magnitude == 0) {
+			if (Double.doubleToRawLongBits(value) < 0) {
+				out[index++] = '-';
+			}
+			out[index++] = '0';
+			return index;
+		}
 		
-		doWrite(content, textQualify);
+		String text = Double.toString(value);
+		text.getChars(0, text.length(), out, index);
+		return index + text.length();
 	}
 	
-	private void doWrite(String content, boolean textQualify) throws IOException {
-		if (textQualify) {
-			writer.write(textQualifier);
+	/** Copies the cell into the output buffer and hands it to {@link #endCell(int, int, boolean)}, which qualifies and escapes it in place. */
+	private void writeCell(String content, int start, int end, boolean qualifySpaces) throws IOException {
+		int length = end - start;
+		startCell(length);
+		content.getChars(start, end, buffer, position);
+		endCell(position, length, qualifySpaces);
+	}
+	
+	/** Writes the delimiter if the cell isn't the first of the record, and makes room to stage and escape a cell of the given length at the buffer position. */
+	private void startCell(int length) throws IOException {
+		if (!firstColumn) {
+			append(delimiter);
+		}
+		
+		reserve((length << 1) + 2); // every char escaped, plus two qualifiers
+	}
+	
+	/** Classifies the cell staged at the end of the buffer in a single scan, then qualifies and escapes it in place, working back from its end
+	 * so each char is moved once. The buffer must have room for twice the cell length plus two qualifiers.
+	 * @param start The index of the cell in the buffer. The buffer position is moved past the cell once escaped.
+	 * @param length The count of chars in the cell.
+	 * @param qualifySpaces Qualify the cell if it starts or ends with a space or tab, so they survive a trimming reader. */
+	private void endCell(int start, int length, boolean qualifySpaces) {
+		checkSpecials();
+		
+		boolean backslashMode = escapeMode == EscapeMode.BACKSLASH;
+		int qualifiedEscapes = backslashMode ? QUALIFIER | BACKSLASH : QUALIFIER;
+		int unqualifiedEscapes = backslashMode ? BACKSLASH | DELIMITER | RECORD : 0;
+		int end = start + length;
+		int found = 0;
+		int qualifiedCount = 0;
+		int unqualifiedCount = 0;
+		
+		for (int i = start; i < end; i++) {
+			int flags = specialFlags(buffer[i]);
 			
-			if (escapeMode == EscapeMode.BACKSLASH) {
-				content = content.replace("" + Letters.BACKSLASH, "" + Letters.BACKSLASH + Letters.BACKSLASH);
-				content = content.replace("" + textQualifier, "" + Letters.BACKSLASH + textQualifier);
-			}
-			else {
-				content = content.replace("" + textQualifier, "" + textQualifier + textQualifier);
+			if (flags != 0) {
+				found |= flags;
+				if ((flags & qualifiedEscapes) != 0) {
+					qualifiedCount++;
+				}
+				if ((flags & unqualifiedEscapes) != 0) {
+					unqualifiedCount++;
+				}
 			}
 		}
-		else if (escapeMode == EscapeMode.BACKSLASH) {
-			content = content.replace("" + Letters.BACKSLASH, "" + Letters.BACKSLASH + Letters.BACKSLASH);
-			content = content.replace("" + delimiter, "" + Letters.BACKSLASH + delimiter);
+		
+		// an empty first column on its own line must be qualified or the line will be skipped
+		boolean textQualify = forceQualifier
+				|| useTextQualifier
+						&& ((found & (QUALIFIER | DELIMITER | RECORD)) != 0
+								|| firstColumn && (length == 0 || buffer[start] == commentChar)
+								|| qualifySpaces && length > 0 && (isSpaceOrTab(buffer[start]) || isSpaceOrTab(buffer[end - 1])));
+		
+		int escapeFlags;
+		int escapes;
+		char escape;
+		boolean escapeComment = false;
+		
+		if (textQualify) {
+			escapeFlags = qualifiedEscapes;
+			escapes = qualifiedCount;
+			escape = backslashMode ? Letters.BACKSLASH : textQualifier;
+		}
+		else {
+			escapeFlags = unqualifiedEscapes;
+			escapes = unqualifiedCount;
+			escape = Letters.BACKSLASH;
 			
-			// may have to do every character in rDelim?
-			for (char rd : recordDelimiter.toCharArray()) {
-				content = content.replace("" + rd, "" + Letters.BACKSLASH + rd);
+			if (backslashMode && firstColumn && length > 0 && buffer[start] == commentChar && (specialFlags(commentChar) & escapeFlags) == 0) {
+				escapeComment = true;
+				escapes++;
 			}
+		}
+		
+		int shift = textQualify ? 1 : 0;
+		int target = end + escapes + shift; // just past the last content char once escaped
+		
+		if (textQualify) {
+			buffer[target] = textQualifier;
+		}
+		
+		// chars before the first escape stay where they are unless the opening qualifier shifts them
+		for (int source = end - 1, destination = target - 1; source >= start && destination > source; source--) {
+			char letter = buffer[source];
+			buffer[destination--] = letter;
 			
-			
-			if (firstColumn && ! content.isEmpty() && content.charAt(0) == commentChar) {
-				if (content.length() > 1) {
-					content = "" + Letters.BACKSLASH + commentChar + content.substring(1);
-				}
-				else {
-					content = "" + Letters.BACKSLASH + commentChar;
-				}
+			if ((specialFlags(letter) & escapeFlags) != 0 || (escapeComment && source == start)) {
+				buffer[destination--] = escape;
 			}
 		}
 		
-		writer.write(content);
-		
 		if (textQualify) {
-			writer.write(textQualifier);
+			buffer[start] = textQualifier;
 		}
 		
+		position = target + shift;
 		firstColumn = false;
 	}
 	
+	private static boolean isSpaceOrTab(char letter) {
+		return letter == Letters.SPACE || letter == Letters.TAB;
+	}
+	
+	private int specialFlags(char letter) {
+		if (letter < SPECIALS_SIZE) {
+			return specials[letter];
+		}
+		
+		int flags = 0;
+		for (int i = 0; i < wideSpecials.length; i++) {
+			if (wideSpecials[i] == letter) {
+				flags |= wideSpecialFlags[i];
+			}
+		}
+		return flags;
+	}
+	
+	/** Rebuilds the special char table if the settings it was built from have changed. The settings are public fields, so are checked on every cell. */
+	private void checkSpecials() {
+		if (specialsRecordDelimiter != recordDelimiter || specialsQualifier != textQualifier || specialsDelimiter != delimiter) {
+			specialsRecordDelimiter = recordDelimiter;
+			specialsQualifier = textQualifier;
+			specialsDelimiter = delimiter;
+			
+			Arrays.fill(specials, (byte) 0);
+			wideSpecials = new char[0];
+			wideSpecialFlags = new byte[0];
+			
+			addSpecial(textQualifier, QUALIFIER);
+			addSpecial(delimiter, DELIMITER);
+			addSpecial(Letters.BACKSLASH, BACKSLASH);
+			for (int i = 0; i < recordDelimiter.length(); i++) {
+				addSpecial(recordDelimiter.charAt(i), RECORD);
+			}
+			
+			numericSafe = true;
+			for (char letter : NUMERIC_LETTERS) {
+				if (specialFlags(letter) != 0) {
+					numericSafe = false;
+				}
+			}
+		}
+	}
+	
+	private void addSpecial(char letter, byte flag) {
+		if (letter < SPECIALS_SIZE) {
+			specials[letter] |= flag;
+		}
+		else {
+			wideSpecials = Arrays.copyOf(wideSpecials, wideSpecials.length + 1);
+			wideSpecialFlags = Arrays.copyOf(wideSpecialFlags, wideSpecialFlags.length + 1);
+			wideSpecials[wideSpecials.length - 1] = letter;
+			wideSpecialFlags[wideSpecialFlags.length - 1] = flag;
+		}
+	}
+	
+	private void append(String content) throws IOException {
+		int length = content.length();
+		int i = 0;
+		
+		while (i < length) {
+			int end = Math.min(length, i + buffer.length);
+			ensureCapacity(end - i);
+			content.getChars(i, end, buffer, position);
+			position += end - i;
+			i = end;
+		}
+	}
+	
+	private void append(char letter) throws IOException {
+		ensureCapacity(1);
+		buffer[position++] = letter;
+	}
+	
+	/** Makes room for at least the given count of chars, which must not be more than the buffer length. */
+	private void ensureCapacity(int length) throws IOException {
+		if (buffer.length - position < length) {
+			flushBuffer();
+		}
+	}
+	
+	/** Makes room for at least the given count of chars, growing the buffer for a cell too large for it until the next flush. */
+	private void reserve(int length) throws IOException {
+		if (buffer.length - position < length) {
+			flushBuffer();
+			
+			if (buffer.length < length) {
+				buffer = new char[length];
+			}
+		}
+	}
+	
+	private void flushBuffer() throws IOException {
+		if (position > 0) {
+			try {
+				writer.write(buffer, 0, position);
+			}
+			catch (IOException e) {
+				writeFailed = true;
+				throw e;
+			}
+			position = 0;
+		}
+		if (buffer.length > BUFFER_SIZE) {
+			buffer = new char[BUFFER_SIZE];
+		}
+	}
+	
 	public void writeComment(String commentText) throws IOException {
 		checkClosed();
-		writer.write(commentChar);
-		writer.write(commentText);
-		writer.write(recordDelimiter);
+		append(commentChar);
+		append(commentText);
+		append(recordDelimiter);
 		firstColumn = true;
 	}
 	
@@ -330,17 +895,225 @@ public class CsvWriter implements AutoCloseable {
 		}
 	}
 	
+	/** Writes the current record of a reader as a new record, copying the chars of its cells straight from the reader,
+	 * without creating Strings. The cells are escaped for this writer's settings, as by {@link #write(String)}.
+	 * An empty record is skipped, as by {@link #writeRecord(String[])}.
+	 * @param reader The reader positioned at the record to write.
+	 * @throws IOException Thrown if an error occurs while writing data to the destination stream, or if the reader has been closed. */
+	public void writeCurrentRecord(CsvReader reader) throws IOException {
+		checkClosed();
+		
+		if (reader == null) {
+			throw new IllegalArgumentException("Parameter reader can not be null.");
+		}
+		
+		int count = reader.getColumnCount();
+		
+		if (count > 0) {
+			for (int i = 0; i < count; i++) {
+				writeCellUnchecked(reader, i);
+			}
+			endRecordUnchecked();
+		}
+	}
+	
+	/** Writes another column of data to this record, copying the chars of a cell of the reader's current record straight from the reader.
+	 * @param reader The reader positioned at the record holding the cell.
+	 * @param columnIndex The index of the cell in the reader's record. A column outside the record is written empty, as {@link com.nunn.yacsv.CsvReader#get(int)} returns it.
+	 * @throws IOException Thrown if an error occurs while writing data to the destination stream, or if the reader has been closed. */
+	public void writeCell(CsvReader reader, int columnIndex) throws IOException {
+		checkClosed();
+		
+		if (reader == null) {
+			throw new IllegalArgumentException("Parameter reader can not be null.");
+		}
+		
+		writeCellUnchecked(reader, columnIndex);
+	}
+	
+	private void writeCellUnchecked(CsvReader reader, int columnIndex) throws IOException {
+		int length = reader.getCellLength(columnIndex);
+		
+		if (length < 0) {
+			writeValue(null);
+			return;
+		}
+		
+		startCell(length);
+		System.arraycopy(reader.getCellChars(), reader.getCellStart(columnIndex), buffer, position, length);
+		endCell(position, length, true);
+	}
+	
+	/** Writes a new record for each of the passed in arrays of values.
+	 * @param records Records to be written. Null and empty arrays are skipped, as by {@link #writeRecord(String[])}.
+	 * @throws IOException Thrown if an error occurs while writing data to the destination stream. */
+	public void writeRecords(Iterable<String[]> records) throws IOException {
+		checkClosed();
+		
+		if (records == null) {
+			throw new IllegalArgumentException("Parameter records can not be null.");
+		}
+		
+		for (String[] values : records) {
+			if (values != null && values.length > 0) {
+				for (int i = 0; i < values.length; i++) {
+					writeValue(values[i]);
+				}
+				endRecordUnchecked();
+			}
+		}
+	}
+	
+	/** Writes a record for each row of the given columns, taking the values of a row from the same index of each column.
+	 * @param rowCount The count of rows to write.
+	 * @param columns The columns of the records, each with at least rowCount values.
+	 * @throws IOException Thrown if an error occurs while writing data to the destination stream. */
+	public void writeColumns(int rowCount, Column... columns) throws IOException {
+		checkClosed();
+		
+		if (rowCount < 0) {
+			throw new IllegalArgumentException("Parameter rowCount can not be negative.");
+		}
+		if (columns == null || columns.length == 0) {
+			throw new IllegalArgumentException("Parameter columns can not be empty.");
+		}
+		for (int i = 0; i < columns.length; i++) {
+			if (columns[i] == null) {
+				throw new IllegalArgumentException("Column " + i + " can not be null.");
+			}
+			if (columns[i].length() < rowCount) {
+				throw new IllegalArgumentException("Column " + i + " has fewer than " + rowCount + " values.");
+			}
+		}
+		
+		for (int row = 0; row < rowCount; row++) {
+			for (int i = 0; i < columns.length; i++) {
+				Column column = columns[i];
+				
+				if (column.nulls != null && column.nulls.get(row)) {
+					writeValue(null);
+				}
+				else if (column.longs != null) {
+					writeLong(column.longs[row]);
+				}
+				else if (column.doubles != null) {
+					writeDouble(column.doubles[row]);
+				}
+				else {
+					writeValue(column.strings[row]);
+				}
+			}
+			endRecordUnchecked();
+		}
+	}
+	
+	/** A column of values for {@link com.nunn.yacsv.CsvWriter#writeColumns(int, Column...)}, backed by an array which is not copied.
+	 * Rows set in the optional null mask are written as empty cells. */
+	public static final class Column {
+		
+		private final long[] longs;
+		private final double[] doubles;
+		private final String[] strings;
+		private final BitSet nulls;
+		
+		private Column(long[] longs, double[] doubles, String[] strings, BitSet nulls) {
+			this.longs = longs;
+			this.doubles = doubles;
+			this.strings = strings;
+			this.nulls = nulls;
+		}
+		
+		/** Creates a column of integers.
+		 * @param values The values of the rows.
+		 * @param nulls The rows without a value, or null if all have one.
+		 * @return The column. */
+		public static Column of(long[] values, BitSet nulls) {
+			if (values == null) {
+				throw new IllegalArgumentException("Parameter values can not be null.");
+			}
+			return new Column(values, null, null, nulls);
+		}
+		
+		/** Creates a column of doubles, formatted as by {@link com.nunn.yacsv.CsvWriter#write(double)}.
+		 * @param values The values of the rows.
+		 * @param nulls The rows without a value, or null if all have one.
+		 * @return The column. */
+		public static Column of(double[] values, BitSet nulls) {
+			if (values == null) {
+				throw new IllegalArgumentException("Parameter values can not be null.");
+			}
+			return new Column(null, values, null, nulls);
+		}
+		
+		/** Creates a column of text. Null values are written as empty cells, as are rows set in the mask.
+		 * @param values The values of the rows.
+		 * @param nulls The rows without a value, or null if all have one.
+		 * @return The column. */
+		public static Column of(String[] values, BitSet nulls) {
+			if (values == null) {
+				throw new IllegalArgumentException("Parameter values can not be null.");
+			}
+			return new Column(null, null, values, nulls);
+		}
+		
+		private int length() {
+			return longs != null ? longs.length : doubles != null ? doubles.length : strings.length;
+		}
+		
+	}
+	
 	/** Ends the current record by sending the record delimiter.
 	 * @exception IOException Thrown if an error occurs while writing data to the destination stream. */
 	public void endRecord() throws IOException {
 		checkClosed();
-		writer.write(recordDelimiter);
+		endRecordUnchecked();
+	}
+	
+	private void endRecordUnchecked() throws IOException {
+		append(recordDelimiter);
 		firstColumn = true;
 	}
 	
+	/** Writes already formatted data as is, for output formatted by other writers. Must be called between records.
+	 * @param data The formatted chars.
+	 * @param offset The index of the first char to write.
+	 * @param length The count of chars to write.
+	 * @throws IOException Thrown if an error occurs while writing data to the destination stream. */
+	void writeRaw(char[] data, int offset, int length) throws IOException {
+		checkClosed();
+		
+		if (buffer.length - position < length) {
+			flushBuffer();
+			
+			if (length >= buffer.length) {
+				writer.write(data, offset, length);
+				return;
+			}
+		}
+		
+		System.arraycopy(data, offset, buffer, position, length);
+		position += length;
+	}
+	
+	/** Copies the format settings of another writer, for writers formatting parts of its output.
+	 * @param other The writer to copy the settings from. */
+	void copySettings(CsvWriter other) {
+		textQualifier = other.textQualifier;
+		useTextQualifier = other.useTextQualifier;
+		delimiter = other.delimiter;
+		recordDelimiter = other.recordDelimiter;
+		commentChar = other.commentChar;
+		escapeMode = other.escapeMode;
+		forceQualifier = other.forceQualifier;
+		dateFormatter = other.dateFormatter;
+		instantFormatter = other.instantFormatter;
+	}
+	
 	/** Clears all buffers for the current writer and causes any buffered data to be written to the underlying device.
 	 * @exception IOException Thrown if an error occurs while writing data to the destination stream. */
 	public void flush() throws IOException {
+		checkClosed();
+		flushBuffer();
 		writer.flush();
 	}
 	
@@ -350,17 +1123,43 @@ public class CsvWriter implements AutoCloseable {
 		close(true);
 	}
 	
+	/** Closes and releases all related resources, optionally closing the underlying writer. Buffered data is always written to the underlying writer.
+	 * Call {@link #flush()} first to have an error writing the buffered data reported as an {@link java.io.IOException IOException}.
+	 * @param closeWriter Close the underlying writer.
+	 * @throws UncheckedIOException Thrown if the buffered data could not be written, unless an earlier write already failed.
+	 * The writer is closed all the same. */
 	public void close(boolean closeWriter) {
-		if ( ! closed && closeWriter && writer != null) {
+		boolean failureReported = writeFailed;
+		IOException flushError = null;
+		
+		if ( ! closed && writer != null) {
 			try {
-				writer.close();
+				flushBuffer();
+				
+				if ( ! closeWriter) {
+					writer.flush(); // an encoding writer created for a stream or channel holds bytes of its own
+				}
 			}
-			catch (Exception e) {
-				// just eat the exception
+			catch (IOException e) {
+				flushError = e;
+			}
+			
+			if (closeWriter) {
+				try {
+					writer.close();
+				}
+				catch (Exception e) {
+					// just eat the exception
+				}
 			}
 		}
 		writer = null;
+		buffer = null;
 		closed = true;
+		
+		if (flushError != null && ! failureReported) {
+			throw new UncheckedIOException("Buffered data could not be written on close: " + flushError.getMessage(), flushError);
+		}
 	}
 	
 	private void checkClosed() throws IOException {
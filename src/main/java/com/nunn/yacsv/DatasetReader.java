@@ -0,0 +1,286 @@
+/* Yet Another CSV Reader. Programmed by Rob Nunn.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+package com.nunn.yacsv;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/** Reads the records of all files of a directory matching a glob, many files at a time, handing every record to one callback
+ * together with the file it came from. Suited to datasets of many small files, where opening files and waiting on I/O dominate.
+ * <p>Each file is read by a task of its own: on a virtual thread on JDK 21 and newer, otherwise on a pool of platform threads.
+ * The buffers of the readers are borrowed from a pool shared by the tasks, so a file costs no new read buffer, cell buffer,
+ * byte buffer or decoder once the pool is warm.</p> */
+public class DatasetReader {
+	
+	/** Called for each record read. */
+	public interface RecordHandler {
+		/** Handles a record. Called by many threads at once, for different files; the records of a file are handled in order, by one thread.
+		 * @param file The file the record was read from.
+		 * @param record The reader of the file, positioned at the record. Only valid during the call.
+		 * @throws IOException To stop reading; thrown on from {@link com.nunn.yacsv.DatasetReader#forEach forEach(...)}. */
+		void record(Path file, CsvReader record) throws IOException;
+	}
+	
+	/** Called to set up the reader of each file before its records are read, e.g. to configure it or read its headers. */
+	public interface ReaderSetup {
+		/** Sets up a reader.
+		 * @param file The file being read.
+		 * @param reader The reader of the file.
+		 * @throws IOException To stop reading; thrown on from {@link com.nunn.yacsv.DatasetReader#forEach forEach(...)}. */
+		void setup(Path file, CsvReader reader) throws IOException;
+	}
+	
+	private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+	
+	private final Path directory;
+	private final PathMatcher matcher;
+	private final Charset charset;
+	private final BufferPool pool = new BufferPool();
+	private int parallelism = 64;
+	private ReaderSetup setup = null;
+	
+	/** Creates a {@link com.nunn.yacsv.DatasetReader DatasetReader} of files in the given directory and its subdirectories.
+	 * @param directory The directory to search.
+	 * @param glob The glob the path of a file relative to the directory must match, e.g. <code>*.csv</code> for the files of the
+	 * directory itself, or <code>**.csv</code> for those of its subdirectories too. See {@link java.nio.file.FileSystem#getPathMatcher getPathMatcher(...)}.
+	 * @param charset The {@link java.nio.charset.Charset Charset} to interpret the data. */
+	public DatasetReader(Path directory, String glob, Charset charset) {
+		if (directory == null) {
+			throw new IllegalArgumentException("Parameter directory can not be null.");
+		}
+		if (glob == null) {
+			throw new IllegalArgumentException("Parameter glob can not be null.");
+		}
+		if (charset == null) {
+			throw new IllegalArgumentException("Parameter charset can not be null.");
+		}
+		
+		this.directory = directory;
+		this.matcher = directory.getFileSystem().getPathMatcher("glob:" + glob);
+		this.charset = charset;
+	}
+	
+	/** Creates a {@link com.nunn.yacsv.DatasetReader DatasetReader} of files in the given directory and its subdirectories, using UTF-8 charset.
+	 * @param directory The directory to search.
+	 * @param glob The glob the path of a file relative to the directory must match. */
+	public DatasetReader(Path directory, String glob) {
+		this(directory, glob, StandardCharsets.UTF_8);
+	}
+	
+	/** Gets the most files read at the same time. Default is 64.
+	 * @return The most files read at the same time. */
+	public int getParallelism() {
+		return parallelism;
+	}
+	
+	/** Sets the most files read at the same time, which is also the count of platform threads used when there are no virtual threads. Default is 64.
+	 * @param parallelism The most files read at the same time.
+	 * @return This dataset reader. */
+	public DatasetReader setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parameter parallelism can not be less than 1.");
+		}
+		this.parallelism = parallelism;
+		return this;
+	}
+	
+	/** Sets the setup of the reader of each file, run before its records are read. Default is none.
+	 * @param setup The setup, or null for none.
+	 * @return This dataset reader. */
+	public DatasetReader setReaderSetup(ReaderSetup setup) {
+		this.setup = setup;
+		return this;
+	}
+	
+	/** Gets the files which match the glob, in order of their paths.
+	 * @return The files.
+	 * @throws IOException Thrown if the directory can not be searched. */
+	public List<Path> getFiles() throws IOException {
+		List<Path> files = new ArrayList<Path>();
+		
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.forEach(path -> {
+				if (matcher.matches(directory.relativize(path)) && Files.isRegularFile(path)) {
+					files.add(path);
+				}
+			});
+		}
+		
+		Collections.sort(files);
+		return files;
+	}
+	
+	/** Reads the records of all files matching the glob, and hands each one to the handler. Files are started in order of their paths.
+	 * After an error no more files are started, and the first error is thrown once the files being read are done.
+	 * An {@link java.lang.Error Error}, e.g. a failed assertion in the handler, is thrown as it is. If this thread is interrupted,
+	 * the files being read are stopped at their next record, and waited for before this method throws.
+	 * @param handler The handler of the records.
+	 * @return The count of records handled.
+	 * @throws IOException Thrown if a file can not be read, or thrown on from the setup or the handler. */
+	public long forEach(RecordHandler handler) throws IOException {
+		if (handler == null) {
+			throw new IllegalArgumentException("Parameter handler can not be null.");
+		}
+		
+		List<Path> files = getFiles();
+		AtomicLong count = new AtomicLong();
+		Semaphore permits = new Semaphore(parallelism);
+		FailureHolder failure = new FailureHolder();
+		AtomicBoolean stopped = new AtomicBoolean();
+		ExecutorService executor = newExecutor();
+		
+		try {
+			for (Path file : files) {
+				permits.acquire();
+				
+				if (failure.get() != null) {
+					permits.release();
+					break;
+				}
+				
+				executor.execute(() -> {
+					try {
+						count.addAndGet(read(file, handler, stopped));
+					}
+					catch (Throwable e) { // anything left uncaught would be lost with the task
+						failure.set(file, e);
+					}
+					finally {
+						permits.release();
+					}
+				});
+			}
+			
+			permits.acquire(parallelism); // every task is done
+		}
+		catch (InterruptedException e) {
+			// no handler may be called once this method has returned
+			stopped.set(true);
+			executor.shutdownNow();
+			awaitTermination(executor);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while reading the dataset.");
+		}
+		finally {
+			executor.shutdown();
+		}
+		
+		failure.check();
+		return count.get();
+	}
+	
+	private long read(Path file, RecordHandler handler, AtomicBoolean stopped) throws IOException {
+		long count = 0;
+		
+		try (CsvReader reader = CsvReader.open(file, charset, pool)) {
+			if (setup != null) {
+				setup.setup(file, reader);
+			}
+			while ( ! stopped.get() && reader.readRecord()) {
+				handler.record(file, reader);
+				count++;
+			}
+		}
+		
+		return count;
+	}
+	
+	/** Waits for the tasks of a stopped executor to end, even if interrupted again meanwhile. */
+	private static void awaitTermination(ExecutorService executor) {
+		while ( ! executor.isTerminated()) {
+			try {
+				executor.awaitTermination(1, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException e) {
+				// the interrupt is restored by the caller
+			}
+		}
+	}
+	
+	/** A virtual thread per task when the JDK has them, found by reflection as this library is built for JDK 8; otherwise a pool of daemon threads. */
+	private ExecutorService newExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException | RuntimeException e) {
+			String prefix = "yacsv-dataset-" + POOL_NUMBER.incrementAndGet() + "-";
+			AtomicInteger threadNumber = new AtomicInteger();
+			return Executors.newFixedThreadPool(parallelism, runnable -> {
+				Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+	
+	/** Whether files are read on virtual threads, which needs JDK 21 or newer.
+	 * @return TRUE when virtual threads are available. */
+	public static boolean usesVirtualThreads() {
+		try {
+			Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return true;
+		}
+		catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+	
+	/** The first error of any task. */
+	private static final class FailureHolder {
+		
+		private Path file;
+		private Throwable error;
+		
+		synchronized void set(Path failedFile, Throwable failedError) {
+			if (error == null) {
+				file = failedFile;
+				error = failedError;
+			}
+		}
+		
+		synchronized Throwable get() {
+			return error;
+		}
+		
+		synchronized void check() throws IOException {
+			if (error instanceof Error) {
+				throw (Error) error;
+			}
+			if (error != null) {
+				throw new IOException("Error while reading " + file + ": " + error.getMessage(), error);
+			}
+		}
+		
+	}
+	
+}
@@ -0,0 +1,276 @@
+/* Yet Another CSV Reader. Programmed by Rob Nunn.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+package com.nunn.yacsv;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/** A {@link java.io.Writer Writer} encoding UTF-8, US-ASCII or ISO-8859-1 straight into one large byte buffer, which is handed
+ * to an {@link java.io.OutputStream OutputStream}, or through a reusable direct {@link java.nio.ByteBuffer ByteBuffer} to a
+ * {@link java.nio.channels.WritableByteChannel WritableByteChannel}. Chars which can't be encoded are written as '?', as
+ * {@link java.io.OutputStreamWriter OutputStreamWriter} does. */
+class EncodingWriter extends Writer {
+	
+	static final int DEFAULT_BUFFER_SIZE = 32768;
+	private static final int MIN_CHUNK = 1024; // chars encoded between checks for room, unless fewer are left
+	
+	private static final byte REPLACEMENT = '?';
+	
+	private final OutputStream stream; // null when writing to a channel
+	private final WritableByteChannel channel;
+	private final ByteBuffer direct;
+	private final byte[] bytes = new byte[DEFAULT_BUFFER_SIZE];
+	private int position = 0;
+	private final boolean utf8;
+	private final char maxLetter; // highest char of a single byte charset
+	private char pendingHighSurrogate = 0; // the first half of a pair split across two writes
+	private boolean closed = false;
+	
+	EncodingWriter(OutputStream stream, Charset charset) {
+		this(stream, null, charset);
+	}
+	
+	EncodingWriter(WritableByteChannel channel, Charset charset) {
+		this(null, channel, charset);
+	}
+	
+	private EncodingWriter(OutputStream stream, WritableByteChannel channel, Charset charset) {
+		if ( ! supports(charset)) {
+			throw new IllegalArgumentException("Charset " + charset + " is not supported.");
+		}
+		this.stream = stream;
+		this.channel = channel;
+		this.direct = channel == null ? null : ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE);
+		this.utf8 = StandardCharsets.UTF_8.equals(charset);
+		this.maxLetter = StandardCharsets.US_ASCII.equals(charset) ? '\u007f' : '\u00ff';
+	}
+	
+	/** Whether the given charset can be encoded by this writer.
+	 * @param charset The {@link java.nio.charset.Charset Charset} to check.
+	 * @return TRUE for UTF-8, US-ASCII and ISO-8859-1. */
+	static boolean supports(Charset charset) {
+		return StandardCharsets.UTF_8.equals(charset) || StandardCharsets.US_ASCII.equals(charset) || StandardCharsets.ISO_8859_1.equals(charset);
+	}
+	
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		ensureOpen();
+		
+		if (off < 0 || len < 0 || off > cbuf.length - len) {
+			throw new IndexOutOfBoundsException();
+		}
+		
+		if (utf8) {
+			encodeUtf8(cbuf, off, off + len);
+		}
+		else {
+			encodeSingleByte(cbuf, off, off + len);
+		}
+	}
+	
+	@Override
+	public void write(int letter) throws IOException {
+		write(new char[] { (char) letter }, 0, 1);
+	}
+	
+	private void encodeUtf8(char[] cbuf, int off, int end) throws IOException {
+		byte[] out = bytes;
+		int i = off;
+		
+		if (pendingHighSurrogate != 0 && i < end) {
+			char high = pendingHighSurrogate;
+			pendingHighSurrogate = 0;
+			
+			if (out.length - position < 4) {
+				flushBytes();
+			}
+			if (Character.isLowSurrogate(cbuf[i])) {
+				position = putCodePoint(out, position, Character.toCodePoint(high, cbuf[i++]));
+			}
+			else {
+				out[position++] = REPLACEMENT;
+			}
+		}
+		
+		while (i < end) {
+			// at most 3 bytes per char, and one more char when a chunk ends on the first half of a pair
+			int chunk = Math.min(end - i, (out.length - position - 4) / 3);
+			if (chunk < Math.min(end - i, MIN_CHUNK)) {
+				flushBytes();
+				continue;
+			}
+			int chunkEnd = i + chunk;
+			
+			int p = position;
+			
+			while (i < chunkEnd) {
+				char letter = cbuf[i++];
+				
+				if (letter < 0x80) {
+					out[p++] = (byte) letter;
+				}
+				else if (letter < 0x800) {
+					out[p++] = (byte) (0xc0 | letter >> 6);
+					out[p++] = (byte) (0x80 | letter & 0x3f);
+				}
+				else if (Character.isHighSurrogate(letter)) {
+					if (i == end) {
+						pendingHighSurrogate = letter;
+					}
+					else if (Character.isLowSurrogate(cbuf[i])) {
+						p = putCodePoint(out, p, Character.toCodePoint(letter, cbuf[i++]));
+					}
+					else {
+						out[p++] = REPLACEMENT;
+					}
+				}
+				else if (Character.isLowSurrogate(letter)) {
+					out[p++] = REPLACEMENT;
+				}
+				else {
+					out[p++] = (byte) (0xe0 | letter >> 12);
+					out[p++] = (byte) (0x80 | letter >> 6 & 0x3f);
+					out[p++] = (byte) (0x80 | letter & 0x3f);
+				}
+			}
+			
+			position = p;
+		}
+	}
+	
+	private static int putCodePoint(byte[] out, int p, int codePoint) {
+		out[p++] = (byte) (0xf0 | codePoint >> 18);
+		out[p++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+		out[p++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+		out[p++] = (byte) (0x80 | codePoint & 0x3f);
+		return p;
+	}
+	
+	private void encodeSingleByte(char[] cbuf, int off, int end) throws IOException {
+		byte[] out = bytes;
+		char max = maxLetter;
+		int i = off;
+		
+		while (i < end) {
+			int chunkEnd = i + Math.min(end - i, out.length - position);
+			if (chunkEnd == i) {
+				flushBytes();
+				continue;
+			}
+			
+			int p = position;
+			
+			while (i < chunkEnd) {
+				char letter = cbuf[i++];
+				
+				if (letter <= max) {
+					out[p++] = (byte) letter;
+				}
+				else {
+					if (Character.isHighSurrogate(letter) && i < end && Character.isLowSurrogate(cbuf[i])) {
+						i++; // one replacement for the pair
+					}
+					out[p++] = REPLACEMENT;
+				}
+			}
+			
+			position = p;
+		}
+	}
+	
+	private void flushBytes() throws IOException {
+		if (position == 0) {
+			return;
+		}
+		
+		if (stream != null) {
+			stream.write(bytes, 0, position);
+		}
+		else {
+			direct.clear();
+			direct.put(bytes, 0, position);
+			direct.flip();
+			while (direct.hasRemaining()) {
+				channel.write(direct);
+			}
+		}
+		position = 0;
+	}
+	
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+	
+	/** Writes the buffered bytes and flushes the stream. The first half of a surrogate pair is kept back until the rest of it is written. */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		flushBytes();
+		
+		if (stream != null) {
+			stream.flush();
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		
+		Throwable failure = null;
+		try {
+			if (pendingHighSurrogate != 0) {
+				pendingHighSurrogate = 0;
+				if (position == bytes.length) {
+					flushBytes();
+				}
+				bytes[position++] = REPLACEMENT;
+			}
+			flushBytes();
+		}
+		catch (Throwable e) {
+			failure = e;
+			throw e;
+		}
+		finally {
+			closed = true;
+			try {
+				if (stream != null) {
+					stream.close();
+				}
+				else {
+					channel.close();
+				}
+			}
+			catch (IOException e) {
+				if (failure == null) {
+					throw e;
+				}
+				failure.addSuppressed(e); // the lost data is the error to report
+			}
+		}
+	}
+	
+}
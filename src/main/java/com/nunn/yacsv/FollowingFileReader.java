@@ -0,0 +1,106 @@
+/* Yet Another CSV Reader. Programmed by Rob Nunn.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+package com.nunn.yacsv;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/** A {@link com.nunn.yacsv.ChannelReader ChannelReader} for a file that is still being appended to.
+ * At the end of the file it polls for the file to grow instead of reporting the end of the data,
+ * so the parser keeps its place, partial record included. The end of the data is reported once
+ * the file has not grown for the idle timeout. */
+class FollowingFileReader extends ChannelReader {
+	
+	private final Path path;
+	private final FileChannel channel;
+	private final Object fileKey;
+	private final long pollMillis;
+	private final long idleTimeoutMillis;
+	
+	FollowingFileReader(Path path, FileChannel channel, CharsetDecoder decoder, long pollMillis, long idleTimeoutMillis) throws IOException {
+		super(channel, decoder, DEFAULT_BUFFER_SIZE);
+		this.path = path;
+		this.channel = channel;
+		this.fileKey = readFileKey();
+		this.pollMillis = pollMillis;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+	}
+	
+	@Override
+	protected boolean fill() throws IOException {
+		bytes.compact();
+		try {
+			long idleSince = System.currentTimeMillis();
+			
+			for (;;) {
+				int count = channel.read(bytes);
+				
+				if (count > 0) {
+					sourcePosition += count;
+					return true;
+				}
+				
+				checkFile();
+				
+				long idle = System.currentTimeMillis() - idleSince;
+				if (idle >= idleTimeoutMillis) {
+					return false;
+				}
+				
+				try {
+					Thread.sleep(Math.min(pollMillis, idleTimeoutMillis - idle));
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for " + path + " to grow.");
+				}
+			}
+		}
+		finally {
+			bytes.flip();
+		}
+	}
+	
+	private void checkFile() throws IOException {
+		if (channel.size() < channel.position()) {
+			throw new IOException("File was truncated while being followed: " + path);
+		}
+		
+		Object currentKey;
+		try {
+			currentKey = readFileKey();
+		}
+		catch (NoSuchFileException e) {
+			throw new IOException("File was removed or rotated while being followed: " + path, e);
+		}
+		
+		if (fileKey != null && ! fileKey.equals(currentKey)) {
+			throw new IOException("File was removed or rotated while being followed: " + path);
+		}
+	}
+	
+	private Object readFileKey() throws IOException {
+		return Files.readAttributes(path, BasicFileAttributes.class).fileKey(); // null where the file system has no file keys
+	}
+	
+}
@@ -0,0 +1,258 @@
+/* Yet Another CSV Reader. Programmed by Rob Nunn.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+package com.nunn.yacsv;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Writes records through a {@link com.nunn.yacsv.CsvWriter CsvWriter}, formatting and escaping batches of them on worker threads.
+ * The formatted batches are written to the target in the order the records were given, by the thread giving them.
+ * At most the given count of batches is in flight; further records wait for the oldest batch to be written.
+ * <p>Records are formatted with the settings the target has when their batch is handed to a worker.
+ * A record array is formatted later, so must not be changed once given. Not safe for use by more than one producer thread.</p> */
+public class ParallelCsvWriter implements AutoCloseable {
+	
+	private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+	
+	private final CsvWriter target;
+	private final ExecutorService workers;
+	private final int batchSize;
+	private final int maxPendingBatches;
+	private final ArrayDeque<Future<Batch>> pending = new ArrayDeque<Future<Batch>>();
+	private final ConcurrentLinkedQueue<Batch> idle = new ConcurrentLinkedQueue<Batch>(); // written batches, reused with their buffers
+	private Batch current;
+	private boolean closed = false;
+	private boolean failed = false; // an error was thrown to the producer, the output is incomplete
+	
+	/** Creates a {@link com.nunn.yacsv.ParallelCsvWriter ParallelCsvWriter} writing to the given target.
+	 * @param target The writer to write the formatted records to. Closed when this writer is closed.
+	 * @param threads The count of worker threads.
+	 * @param batchSize The count of records formatted by a worker at a time.
+	 * @param maxPendingBatches The count of batches which may be formatted or waiting to be written at any time. */
+	public ParallelCsvWriter(CsvWriter target, int threads, int batchSize, int maxPendingBatches) {
+		if (target == null) {
+			throw new IllegalArgumentException("Parameter target can not be null.");
+		}
+		if (threads < 1) {
+			throw new IllegalArgumentException("Parameter threads can not be less than 1.");
+		}
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Parameter batchSize can not be less than 1.");
+		}
+		if (maxPendingBatches < 1) {
+			throw new IllegalArgumentException("Parameter maxPendingBatches can not be less than 1.");
+		}
+		
+		this.target = target;
+		this.batchSize = batchSize;
+		this.maxPendingBatches = maxPendingBatches;
+		
+		String prefix = "yacsv-writer-" + POOL_NUMBER.incrementAndGet() + "-";
+		AtomicInteger threadNumber = new AtomicInteger();
+		this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/** Creates a {@link com.nunn.yacsv.ParallelCsvWriter ParallelCsvWriter} writing to the given target,
+	 * with a worker thread per processor, batches of 1000 records and two batches in flight per worker.
+	 * @param target The writer to write the formatted records to. Closed when this writer is closed. */
+	public ParallelCsvWriter(CsvWriter target) {
+		this(target, Runtime.getRuntime().availableProcessors(), 1000, Runtime.getRuntime().availableProcessors() << 1);
+	}
+	
+	/** Writes a new record using the passed in array of values. The array must not be changed afterwards.
+	 * @param values Values to be written.
+	 * @throws IOException Thrown if an error occurs while formatting or writing an earlier batch. */
+	public void writeRecord(String[] values) throws IOException {
+		checkClosed();
+		
+		if (current == null) {
+			current = idle.poll();
+			if (current == null) {
+				current = new Batch(batchSize);
+			}
+		}
+		
+		current.records.add(values);
+		
+		if (current.records.size() >= batchSize) {
+			submit();
+		}
+	}
+	
+	/** Writes new records using the passed in arrays of values. The arrays must not be changed afterwards.
+	 * @param records Records to be written.
+	 * @throws IOException Thrown if an error occurs while formatting or writing an earlier batch. */
+	public void writeRecords(List<String[]> records) throws IOException {
+		for (int i = 0; i < records.size(); i++) {
+			writeRecord(records.get(i));
+		}
+	}
+	
+	private void submit() throws IOException {
+		while (pending.size() >= maxPendingBatches) {
+			writeNext();
+		}
+		
+		Batch batch = current;
+		current = null;
+		batch.formatter.copySettings(target);
+		pending.add(workers.submit(batch));
+	}
+	
+	private void writeNext() throws IOException {
+		Future<Batch> future = pending.poll();
+		
+		try {
+			Batch batch = future.get();
+			target.writeRaw(batch.chunk.chars, 0, batch.chunk.length);
+			idle.add(batch);
+		}
+		catch (InterruptedException e) {
+			failed = true;
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a batch to be formatted.");
+		}
+		catch (ExecutionException e) {
+			failed = true;
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Error while formatting a batch.", e.getCause());
+		}
+		catch (IOException e) {
+			failed = true;
+			throw e;
+		}
+	}
+	
+	/** Formats and writes all records given so far, then flushes the target.
+	 * @throws IOException Thrown if an error occurs while formatting or writing. */
+	public void flush() throws IOException {
+		checkClosed();
+		drain();
+		target.flush();
+	}
+	
+	private void drain() throws IOException {
+		if (current != null && ! current.records.isEmpty()) {
+			submit();
+		}
+		while ( ! pending.isEmpty()) {
+			writeNext();
+		}
+	}
+	
+	/** Formats and writes all records given so far, then closes the target and stops the worker threads.
+	 * Records given after an error was thrown are dropped.
+	 * @throws IOException Thrown if an error occurs while formatting or writing. The target is closed either way. */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		
+		try {
+			if ( ! failed) {
+				drain();
+			}
+		}
+		finally {
+			closed = true;
+			for (Future<Batch> future : pending) {
+				future.cancel(true);
+			}
+			pending.clear();
+			workers.shutdown();
+			target.close();
+		}
+	}
+	
+	private void checkClosed() throws IOException {
+		if (closed) {
+			throw new IOException("This instance of the ParallelCsvWriter class has already been closed.");
+		}
+	}
+	
+	/** Records to be formatted by a worker, and the chars they were formatted to. */
+	private static final class Batch implements Callable<Batch> {
+		
+		final ArrayList<String[]> records;
+		final Chunk chunk = new Chunk();
+		final CsvWriter formatter = new CsvWriter(chunk);
+		
+		Batch(int batchSize) {
+			records = new ArrayList<String[]>(batchSize);
+		}
+		
+		@Override
+		public Batch call() throws IOException {
+			chunk.length = 0;
+			
+			for (int i = 0; i < records.size(); i++) {
+				formatter.writeRecord(records.get(i));
+			}
+			formatter.flush();
+			records.clear();
+			
+			return this;
+		}
+		
+	}
+	
+	/** A growable char array which a worker's {@link com.nunn.yacsv.CsvWriter CsvWriter} writes to. */
+	private static final class Chunk extends Writer {
+		
+		char[] chars = new char[16384];
+		int length = 0;
+		
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			if (chars.length - length < len) {
+				char[] grown = new char[Math.max(chars.length << 1, length + len)];
+				System.arraycopy(chars, 0, grown, 0, length);
+				chars = grown;
+			}
+			System.arraycopy(cbuf, off, chars, length, len);
+			length += len;
+		}
+		
+		@Override
+		public void flush() {
+		}
+		
+		@Override
+		public void close() {
+		}
+		
+	}
+	
+}
@@ -0,0 +1,352 @@
+/* Yet Another CSV Reader. Programmed by Rob Nunn.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+package com.nunn.yacsv;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/** An {@link java.io.OutputStream OutputStream} writing a single standard gzip stream, whose blocks are deflated in parallel.
+ * Each block is primed with the last 32K of the data before it as its dictionary and ends on a sync flush, so the compressed
+ * blocks join into one deflate stream, compressing almost as well as {@link java.util.zip.GZIPOutputStream GZIPOutputStream}.
+ * Use as the destination of a {@link com.nunn.yacsv.CsvWriter CsvWriter}: <code>new CsvWriter(new ParallelGzipOutputStream(stream), ',', charset)</code>.
+ * <p>Not safe for use by more than one writing thread.</p> */
+public class ParallelGzipOutputStream extends OutputStream {
+	
+	private static final int WINDOW_SIZE = 32768; // the deflate window, so the most of a dictionary that can be used
+	private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+	
+	private final OutputStream out;
+	private final int level;
+	private final int blockSize;
+	private final int maxPendingBlocks;
+	private final ExecutorService workers;
+	private final ArrayDeque<Future<Block>> pending = new ArrayDeque<Future<Block>>();
+	private final ConcurrentLinkedQueue<Block> idle = new ConcurrentLinkedQueue<Block>(); // written blocks, reused with their buffers
+	private final ConcurrentLinkedQueue<Deflater> deflaters = new ConcurrentLinkedQueue<Deflater>();
+	private final CRC32 crc = new CRC32();
+	private final byte[] window = new byte[WINDOW_SIZE]; // the last bytes given, the dictionary of the next block
+	private int windowLength = 0;
+	private long totalLength = 0;
+	private Block current = null;
+	private boolean failed = false;
+	private boolean closed = false;
+	private volatile boolean deflatersEnded = false; // set by close(), so late workers end their deflater instead of pooling it
+	
+	/** Creates a {@link com.nunn.yacsv.ParallelGzipOutputStream ParallelGzipOutputStream} and writes the gzip header.
+	 * @param out The stream to write the compressed data to. Closed when this stream is closed.
+	 * @param level The compression level, 0-9 or {@link java.util.zip.Deflater#DEFAULT_COMPRESSION Deflater.DEFAULT_COMPRESSION}.
+	 * @param threads The count of worker threads.
+	 * @param blockSize The count of bytes compressed by a worker at a time.
+	 * @param maxPendingBlocks The count of blocks which may be compressed or waiting to be written at any time.
+	 * @throws IOException Thrown if the header can not be written. */
+	public ParallelGzipOutputStream(OutputStream out, int level, int threads, int blockSize, int maxPendingBlocks) throws IOException {
+		if (out == null) {
+			throw new IllegalArgumentException("Parameter out can not be null.");
+		}
+		if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+			throw new IllegalArgumentException("Parameter level must be from 0 to 9, or Deflater.DEFAULT_COMPRESSION.");
+		}
+		if (threads < 1) {
+			throw new IllegalArgumentException("Parameter threads can not be less than 1.");
+		}
+		if (blockSize < WINDOW_SIZE) {
+			throw new IllegalArgumentException("Parameter blockSize can not be less than " + WINDOW_SIZE + ".");
+		}
+		if (maxPendingBlocks < 1) {
+			throw new IllegalArgumentException("Parameter maxPendingBlocks can not be less than 1.");
+		}
+		
+		this.out = out;
+		this.level = level;
+		this.blockSize = blockSize;
+		this.maxPendingBlocks = maxPendingBlocks;
+		
+		String prefix = "yacsv-gzip-" + POOL_NUMBER.incrementAndGet() + "-";
+		AtomicInteger threadNumber = new AtomicInteger();
+		this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		
+		// magic, deflate, no flags, no modification time, no extra flags, unknown OS
+		out.write(new byte[] { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff });
+	}
+	
+	/** Creates a {@link com.nunn.yacsv.ParallelGzipOutputStream ParallelGzipOutputStream} with the default compression level,
+	 * a worker thread per processor, blocks of 128K and two blocks in flight per worker, and writes the gzip header.
+	 * @param out The stream to write the compressed data to. Closed when this stream is closed.
+	 * @throws IOException Thrown if the header can not be written. */
+	public ParallelGzipOutputStream(OutputStream out) throws IOException {
+		this(out, Deflater.DEFAULT_COMPRESSION, Runtime.getRuntime().availableProcessors(), 131072, Runtime.getRuntime().availableProcessors() << 1);
+	}
+	
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+		
+		if (off < 0 || len < 0 || off > b.length - len) {
+			throw new IndexOutOfBoundsException();
+		}
+		
+		while (len > 0) {
+			if (current == null) {
+				current = takeBlock();
+			}
+			
+			int count = Math.min(len, current.data.length - current.length);
+			System.arraycopy(b, off, current.data, current.length, count);
+			current.length += count;
+			off += count;
+			len -= count;
+			
+			if (current.length == current.data.length) {
+				submit(false);
+			}
+		}
+	}
+	
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+	
+	private Block takeBlock() {
+		Block block = idle.poll();
+		return block != null ? block : new Block(blockSize);
+	}
+	
+	/** Hands the current block to a worker, with the dictionary of the bytes before it. Runs the checksum, which has to be sequential. */
+	private void submit(boolean last) throws IOException {
+		while (pending.size() >= maxPendingBlocks) {
+			writeNext();
+		}
+		
+		Block block = current;
+		current = null;
+		
+		System.arraycopy(window, 0, block.dictionary, 0, windowLength);
+		block.dictionaryLength = windowLength;
+		block.last = last;
+		
+		crc.update(block.data, 0, block.length);
+		totalLength += block.length;
+		
+		// slide the window over the block
+		if (block.length >= WINDOW_SIZE) {
+			System.arraycopy(block.data, block.length - WINDOW_SIZE, window, 0, WINDOW_SIZE);
+			windowLength = WINDOW_SIZE;
+		}
+		else {
+			int keep = Math.min(windowLength, WINDOW_SIZE - block.length);
+			System.arraycopy(window, windowLength - keep, window, 0, keep);
+			System.arraycopy(block.data, 0, window, keep, block.length);
+			windowLength = keep + block.length;
+		}
+		
+		pending.add(workers.submit(block));
+	}
+	
+	private void writeNext() throws IOException {
+		Future<Block> future = pending.poll();
+		
+		try {
+			Block block = future.get();
+			out.write(block.compressed, 0, block.compressedLength);
+			block.length = 0;
+			idle.add(block);
+		}
+		catch (InterruptedException e) {
+			failed = true;
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a block to be compressed.");
+		}
+		catch (ExecutionException e) {
+			failed = true;
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Error while compressing a block.", e.getCause());
+		}
+		catch (IOException e) {
+			failed = true;
+			throw e;
+		}
+	}
+	
+	/** Compresses and writes all bytes given so far, ending on a sync flush so a reader can decompress them, then flushes the underlying stream.
+	 * @throws IOException Thrown if an error occurs while compressing or writing. */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		
+		if (current != null && current.length > 0) {
+			submit(false);
+		}
+		while ( ! pending.isEmpty()) {
+			writeNext();
+		}
+		out.flush();
+	}
+	
+	/** Compresses and writes all bytes given so far and the gzip trailer, then closes the underlying stream and stops the worker threads.
+	 * @throws IOException Thrown if an error occurs while compressing or writing. The underlying stream is closed either way. */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		
+		try {
+			if ( ! failed) {
+				if (current == null) {
+					current = takeBlock();
+				}
+				submit(true);
+				
+				while ( ! pending.isEmpty()) {
+					writeNext();
+				}
+				
+				writeTrailer();
+				out.flush();
+			}
+		}
+		finally {
+			closed = true;
+			for (Future<Block> future : pending) {
+				future.cancel(true);
+			}
+			pending.clear();
+			workers.shutdown();
+			
+			deflatersEnded = true;
+			Deflater deflater;
+			while ((deflater = deflaters.poll()) != null) {
+				deflater.end();
+			}
+			
+			out.close();
+		}
+	}
+	
+	private void writeTrailer() throws IOException {
+		long checksum = crc.getValue();
+		long size = totalLength & 0xffffffffL; // the length modulo 2^32
+		
+		out.write(new byte[] {
+				(byte) checksum, (byte) (checksum >> 8), (byte) (checksum >> 16), (byte) (checksum >> 24),
+				(byte) size, (byte) (size >> 8), (byte) (size >> 16), (byte) (size >> 24) });
+	}
+	
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+	
+	/** Bytes to be compressed by a worker, and what they were compressed to. */
+	private final class Block implements Callable<Block> {
+		
+		final byte[] data;
+		int length = 0;
+		final byte[] dictionary = new byte[WINDOW_SIZE];
+		int dictionaryLength = 0;
+		boolean last;
+		byte[] compressed;
+		int compressedLength;
+		
+		Block(int size) {
+			data = new byte[size];
+			compressed = new byte[(size >> 1) + 64];
+		}
+		
+		@Override
+		public Block call() {
+			Deflater deflater = deflaters.poll();
+			if (deflater == null) {
+				deflater = new Deflater(level, true); // raw deflate, the gzip header and trailer are written separately
+			}
+			
+			try {
+				deflater.reset();
+				if (dictionaryLength > 0) {
+					deflater.setDictionary(dictionary, 0, dictionaryLength);
+				}
+				deflater.setInput(data, 0, length);
+				compressedLength = 0;
+				
+				if (last) {
+					deflater.finish();
+					while ( ! deflater.finished()) {
+						deflateMore(deflater, Deflater.NO_FLUSH);
+					}
+				}
+				else {
+					// with a sync flush, a full output buffer means there may be more to come
+					while (deflateMore(deflater, Deflater.SYNC_FLUSH)) {
+					}
+				}
+			}
+			finally {
+				release(deflater);
+			}
+			
+			return this;
+		}
+		
+		/** Pools the deflater, or ends it if the stream has been closed meanwhile. */
+		private void release(Deflater deflater) {
+			if (deflatersEnded) {
+				deflater.end();
+				return;
+			}
+			deflaters.add(deflater);
+			// close() may have drained the pool between the check and the add; whoever removes it ends it
+			if (deflatersEnded && deflaters.remove(deflater)) {
+				deflater.end();
+			}
+		}
+		
+		/** @return TRUE if the output buffer was filled. */
+		private boolean deflateMore(Deflater deflater, int flush) {
+			if (compressedLength == compressed.length) {
+				byte[] grown = new byte[compressed.length << 1];
+				System.arraycopy(compressed, 0, grown, 0, compressedLength);
+				compressed = grown;
+			}
+			
+			int space = compressed.length - compressedLength;
+			int count = deflater.deflate(compressed, compressedLength, space, flush);
+			compressedLength += count;
+			return count == space;
+		}
+		
+	}
+	
+}
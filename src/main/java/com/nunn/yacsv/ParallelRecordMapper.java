@@ -0,0 +1,289 @@
+/* Yet Another CSV Reader. Programmed by Rob Nunn.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+package com.nunn.yacsv;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/** Maps the records of a {@link com.nunn.yacsv.CsvReader CsvReader} with a function run on worker threads, and writes the results
+ * to a {@link com.nunn.yacsv.CsvWriter CsvWriter} in the order the records were read.
+ * The thread calling {@link #run()} parses records into numbered batches and hands them to the workers; a writer thread writes
+ * the mapped batches in order. At most the given count of batches is in flight, so parsing waits while the writer is behind.
+ * <p>The function may be called for different records at the same time, by different threads.
+ * The reader and writer are not closed, and must not be used by other threads during the run.</p> */
+public class ParallelRecordMapper {
+	
+	private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+	private static final Future<Batch> END = CompletableFuture.completedFuture(null); // after the last batch
+	
+	private final CsvReader source;
+	private final CsvWriter target;
+	private final Function<String[], String[]> function;
+	private final int threads;
+	private final int batchSize;
+	private final ArrayBlockingQueue<Future<Batch>> window; // the batches in flight, in the order they were read
+	private final ConcurrentLinkedQueue<Batch> idle = new ConcurrentLinkedQueue<Batch>(); // written batches, reused with their arrays
+	private volatile Throwable failure = null;
+	private long written = 0;
+	private boolean started = false;
+	
+	/** Creates a {@link com.nunn.yacsv.ParallelRecordMapper ParallelRecordMapper}.
+	 * @param source The reader to read records from.
+	 * @param target The writer to write the mapped records to.
+	 * @param function The function giving the values to write for the values of a record read, or null to drop the record.
+	 * It is given an array of its own, which it may change and return.
+	 * @param threads The count of worker threads.
+	 * @param batchSize The count of records mapped by a worker at a time.
+	 * @param maxPendingBatches The count of batches which may be mapped or waiting to be written at any time. */
+	public ParallelRecordMapper(CsvReader source, CsvWriter target, Function<String[], String[]> function, int threads, int batchSize, int maxPendingBatches) {
+		if (source == null) {
+			throw new IllegalArgumentException("Parameter source can not be null.");
+		}
+		if (target == null) {
+			throw new IllegalArgumentException("Parameter target can not be null.");
+		}
+		if (function == null) {
+			throw new IllegalArgumentException("Parameter function can not be null.");
+		}
+		if (threads < 1) {
+			throw new IllegalArgumentException("Parameter threads can not be less than 1.");
+		}
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Parameter batchSize can not be less than 1.");
+		}
+		if (maxPendingBatches < 1) {
+			throw new IllegalArgumentException("Parameter maxPendingBatches can not be less than 1.");
+		}
+		
+		this.source = source;
+		this.target = target;
+		this.function = function;
+		this.threads = threads;
+		this.batchSize = batchSize;
+		this.window = new ArrayBlockingQueue<Future<Batch>>(maxPendingBatches);
+	}
+	
+	/** Creates a {@link com.nunn.yacsv.ParallelRecordMapper ParallelRecordMapper} with a worker thread per processor,
+	 * batches of 1000 records and two batches in flight per worker.
+	 * @param source The reader to read records from.
+	 * @param target The writer to write the mapped records to.
+	 * @param function The function giving the values to write for the values of a record read, or null to drop the record. */
+	public ParallelRecordMapper(CsvReader source, CsvWriter target, Function<String[], String[]> function) {
+		this(source, target, function, Runtime.getRuntime().availableProcessors(), 1000, Runtime.getRuntime().availableProcessors() << 1);
+	}
+	
+	/** Reads all remaining records of the source, maps them and writes the results to the target, then flushes the target.
+	 * Can only be run once.
+	 * @return The count of records written.
+	 * @throws IOException Thrown if an error occurs while reading, mapping or writing. */
+	public long run() throws IOException {
+		if (started) {
+			throw new IllegalStateException("This instance of the ParallelRecordMapper class has already been run.");
+		}
+		started = true;
+		
+		String prefix = "yacsv-map-" + POOL_NUMBER.incrementAndGet() + "-";
+		AtomicInteger threadNumber = new AtomicInteger();
+		ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		
+		Thread writer = new Thread(this::drain, prefix + "writer");
+		writer.setDaemon(true);
+		writer.start();
+		
+		try {
+			long sequence = 0;
+			Batch batch = takeBatch();
+			
+			while (failure == null && source.readRecord()) {
+				batch.add(source.getValues(), source.getCurrentRecord());
+				
+				if (batch.size == batchSize) {
+					batch.sequence = sequence++;
+					putInterruptibly(workers.submit(batch));
+					batch = takeBatch();
+				}
+			}
+			
+			if (batch.size > 0 && failure == null) {
+				batch.sequence = sequence;
+				putInterruptibly(workers.submit(batch));
+			}
+		}
+		finally {
+			finish(writer);
+			workers.shutdown();
+		}
+		
+		checkFailure();
+		target.flush();
+		return written;
+	}
+	
+	private Batch takeBatch() {
+		Batch batch = idle.poll();
+		return batch != null ? batch : new Batch(batchSize, function);
+	}
+	
+	private void putInterruptibly(Future<Batch> future) throws IOException {
+		try {
+			window.put(future);
+		}
+		catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a batch to be written.");
+		}
+	}
+	
+	/** Ends the writer thread, which always drains the window, and waits for it, even when interrupted. */
+	private void finish(Thread writer) {
+		boolean interrupted = false;
+		boolean ended = false;
+		
+		while ( ! ended) {
+			try {
+				window.put(END);
+				ended = true;
+			}
+			catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		while (writer.isAlive()) {
+			try {
+				writer.join();
+			}
+			catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/** Run by the writer thread. After a failure it keeps taking batches without writing them, so parsing is never left waiting. */
+	private void drain() {
+		for (;;) {
+			Future<Batch> future;
+			try {
+				future = window.take();
+			}
+			catch (InterruptedException e) {
+				continue; // only the end of the window stops this thread
+			}
+			
+			if (future == END) {
+				return;
+			}
+			if (failure != null) {
+				future.cancel(true);
+				continue;
+			}
+			
+			try {
+				Batch batch = future.get();
+				for (int i = 0; i < batch.size; i++) {
+					if (batch.results[i] != null) {
+						target.writeRecord(batch.results[i]);
+						written++;
+					}
+				}
+				batch.clear();
+				idle.add(batch);
+			}
+			catch (ExecutionException e) {
+				failure = e.getCause();
+			}
+			catch (Throwable e) {
+				failure = e;
+			}
+		}
+	}
+	
+	private void checkFailure() throws IOException {
+		Throwable cause = failure;
+		if (cause instanceof IOException) {
+			throw (IOException) cause;
+		}
+		else if (cause != null) {
+			throw new IOException("Error while mapping a batch: " + cause.getMessage(), cause);
+		}
+	}
+	
+	/** Records read together, numbered in the order they were read, and the results of mapping them. */
+	private static final class Batch implements Callable<Batch> {
+		
+		final Function<String[], String[]> function;
+		final String[][] records;
+		final long[] recordNumbers;
+		final String[][] results;
+		int size = 0;
+		long sequence;
+		
+		Batch(int batchSize, Function<String[], String[]> function) {
+			this.function = function;
+			records = new String[batchSize][];
+			recordNumbers = new long[batchSize];
+			results = new String[batchSize][];
+		}
+		
+		void add(String[] values, long recordNumber) {
+			records[size] = values;
+			recordNumbers[size] = recordNumber;
+			size++;
+		}
+		
+		void clear() {
+			for (int i = 0; i < size; i++) {
+				records[i] = null;
+				results[i] = null;
+			}
+			size = 0;
+		}
+		
+		@Override
+		public Batch call() {
+			for (int i = 0; i < size; i++) {
+				try {
+					results[i] = function.apply(records[i]);
+				}
+				catch (RuntimeException e) {
+					throw new IllegalStateException("Record " + recordNumbers[i] + " of batch " + sequence + " could not be mapped: " + e.getMessage(), e);
+				}
+			}
+			return this;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,77 @@
+/* Yet Another CSV Reader. Programmed by Rob Nunn.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+package com.nunn.yacsv;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/** A lock-free pool of reusable objects. Each thread prefers the stripe chosen by its id, so threads rarely contend; there is no
+ * way to know the carrier of a virtual thread, so about as many stripes as carriers are used instead. A stripe holds at most one
+ * object, which bounds what is kept; objects offered to full stripes are left to the garbage collector.
+ * @param <T> The type of the objects pooled. */
+final class StripedPool<T> {
+	
+	private static final int PROBES = 2; // stripes tried before giving up
+	
+	private final AtomicReferenceArray<T> stripes;
+	private final int mask;
+	
+	/** @param stripeCount The least count of stripes, rounded up to a power of two. */
+	StripedPool(int stripeCount) {
+		int size = Integer.highestOneBit(Math.max(stripeCount, 1) * 2 - 1);
+		stripes = new AtomicReferenceArray<T>(size);
+		mask = size - 1;
+	}
+	
+	/** Creates a pool with two stripes per processor. */
+	StripedPool() {
+		this(Runtime.getRuntime().availableProcessors() * 2);
+	}
+	
+	/** Takes an object from the pool.
+	 * @return The object, or null when none was found. */
+	T poll() {
+		int stripe = stripe();
+		
+		for (int i = 0; i < PROBES; i++) {
+			T item = stripes.getAndSet((stripe + i) & mask, null);
+			if (item != null) {
+				return item;
+			}
+		}
+		return null;
+	}
+	
+	/** Gives an object to the pool. It must not be used afterwards, unless it is taken again.
+	 * @param item The object.
+	 * @return FALSE when the object was not kept. */
+	boolean offer(T item) {
+		int stripe = stripe();
+		
+		for (int i = 0; i < PROBES; i++) {
+			if (stripes.compareAndSet((stripe + i) & mask, null, item)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private int stripe() {
+		int hash = (int) Thread.currentThread().getId() * 0x9e3779b9;
+		return (hash ^ hash >>> 16) & mask;
+	}
+	
+}
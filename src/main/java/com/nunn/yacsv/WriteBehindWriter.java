@@ -0,0 +1,321 @@
+/* Yet Another CSV Reader. Programmed by Rob Nunn.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+package com.nunn.yacsv;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** A {@link java.io.Writer Writer} handing the chars written to it to a dedicated I/O thread, through a bounded ring of buffers.
+ * The thread writing only waits when every buffer of the ring is waiting to be written, so it doesn't pay for write calls or disk stalls.
+ * Use as the destination of a {@link com.nunn.yacsv.CsvWriter CsvWriter}: <code>new CsvWriter(new WriteBehindWriter(writer))</code>.
+ * <p>An error of the I/O thread is thrown by the next call of the writing thread. Not safe for use by more than one writing thread.</p> */
+public class WriteBehindWriter extends Writer {
+	
+	/** What a write does when every buffer of the ring is waiting to be written. */
+	public enum FullRingPolicy {
+		/** Wait for the I/O thread to free a buffer. */
+		BLOCK,
+		/** Throw an {@link java.io.IOException IOException} straight away. Part of the chars of the failed write may have been taken. */
+		FAIL_FAST
+	}
+	
+	private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+	
+	private final Writer out;
+	private final FullRingPolicy policy;
+	private final int ringSize;
+	private final ArrayBlockingQueue<Slot> free;
+	private final ArrayBlockingQueue<Slot> filled;
+	private final Thread thread;
+	private final Object lock = new Object();
+	private Slot current = null;
+	private long published = 0;
+	private volatile long written = 0;
+	private volatile Throwable failure = null;
+	private long stallNanos = 0;
+	private long stallCount = 0;
+	private boolean closed = false; // no more writes are taken
+	private boolean closePublished = false; // the I/O thread has been told to close
+	private boolean shutDown = false; // the I/O thread is done
+	
+	/** Creates a {@link com.nunn.yacsv.WriteBehindWriter WriteBehindWriter} and starts its I/O thread.
+	 * @param out The writer to write to from the I/O thread. Closed when this writer is closed.
+	 * @param ringSize The count of buffers in the ring.
+	 * @param bufferSize The count of chars in each buffer.
+	 * @param policy What a write does when the ring is full. */
+	public WriteBehindWriter(Writer out, int ringSize, int bufferSize, FullRingPolicy policy) {
+		if (out == null) {
+			throw new IllegalArgumentException("Parameter out can not be null.");
+		}
+		if (ringSize < 2) {
+			throw new IllegalArgumentException("Parameter ringSize can not be less than 2.");
+		}
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("Parameter bufferSize can not be less than 1.");
+		}
+		if (policy == null) {
+			throw new IllegalArgumentException("Parameter policy can not be null.");
+		}
+		
+		this.out = out;
+		this.policy = policy;
+		this.ringSize = ringSize;
+		free = new ArrayBlockingQueue<Slot>(ringSize);
+		filled = new ArrayBlockingQueue<Slot>(ringSize);
+		for (int i = 0; i < ringSize; i++) {
+			free.add(new Slot(bufferSize));
+		}
+		
+		thread = new Thread(this::drain, "yacsv-write-behind-" + THREAD_NUMBER.incrementAndGet());
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/** Creates a {@link com.nunn.yacsv.WriteBehindWriter WriteBehindWriter} with a ring of 8 buffers of 64K chars, blocking when the ring is full.
+	 * @param out The writer to write to from the I/O thread. Closed when this writer is closed. */
+	public WriteBehindWriter(Writer out) {
+		this(out, 8, 65536, FullRingPolicy.BLOCK);
+	}
+	
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		ensureOpen();
+		
+		if (off < 0 || len < 0 || off > cbuf.length - len) {
+			throw new IndexOutOfBoundsException();
+		}
+		
+		while (len > 0) {
+			if (current == null) {
+				current = takeFree(policy == FullRingPolicy.FAIL_FAST);
+			}
+			
+			int count = Math.min(len, current.chars.length - current.length);
+			System.arraycopy(cbuf, off, current.chars, current.length, count);
+			current.length += count;
+			off += count;
+			len -= count;
+			
+			if (current.length == current.chars.length) {
+				publish(false, false);
+			}
+		}
+	}
+	
+	@Override
+	public void write(int letter) throws IOException {
+		write(new char[] { (char) letter }, 0, 1);
+	}
+	
+	/** Waits until the I/O thread has written and flushed everything written so far. Waits for a free buffer whatever the
+	 * {@link com.nunn.yacsv.WriteBehindWriter.FullRingPolicy FullRingPolicy}, which only applies to writes.
+	 * @throws IOException Thrown if the I/O thread failed. */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		
+		if (current == null) {
+			current = takeFree(false);
+		}
+		await(publish(true, false));
+		checkFailure();
+	}
+	
+	/** Waits until the I/O thread has written everything written so far and closed the underlying writer.
+	 * No more writes are taken once called. When interrupted while waiting, calling again finishes closing.
+	 * @throws IOException Thrown if the I/O thread failed. */
+	@Override
+	public void close() throws IOException {
+		if (shutDown) {
+			return;
+		}
+		closed = true;
+		
+		try {
+			if ( ! closePublished) {
+				if (current == null) {
+					current = free.take(); // the I/O thread frees every buffer it takes, failed or not
+				}
+				publish(false, true);
+				closePublished = true;
+			}
+			thread.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while closing the write-behind thread.");
+		}
+		
+		shutDown = true;
+		checkFailure();
+	}
+	
+	/** @param failFast Throw rather than wait when every buffer is waiting to be written. */
+	private Slot takeFree(boolean failFast) throws IOException {
+		Slot slot = free.poll();
+		
+		if (slot == null) {
+			if (failFast) {
+				throw new IOException("All " + ringSize + " write-behind buffers are waiting to be written.");
+			}
+			
+			long start = System.nanoTime();
+			try {
+				slot = free.take();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for a write-behind buffer.");
+			}
+			finally {
+				stallNanos += System.nanoTime() - start;
+				stallCount++;
+			}
+		}
+		
+		checkFailure();
+		return slot;
+	}
+	
+	/** Hands the current buffer to the I/O thread, which has room for it as there are only as many buffers as places in the queue.
+	 * @return The sequence number of the buffer. */
+	private long publish(boolean flush, boolean close) {
+		Slot slot = current;
+		current = null;
+		slot.flush = flush;
+		slot.close = close;
+		slot.sequence = ++published;
+		filled.add(slot);
+		return slot.sequence;
+	}
+	
+	private void await(long sequence) throws IOException {
+		synchronized (lock) {
+			while (written < sequence && failure == null) {
+				try {
+					lock.wait();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for the write-behind thread to flush.");
+				}
+			}
+		}
+	}
+	
+	/** Run by the I/O thread. After a failure it keeps freeing buffers without writing them, so the writing thread wakes to see the failure. */
+	private void drain() {
+		for (;;) {
+			Slot slot;
+			try {
+				slot = filled.take();
+			}
+			catch (InterruptedException e) {
+				continue; // only close() stops this thread
+			}
+			
+			try {
+				if (failure == null) {
+					if (slot.length > 0) {
+						out.write(slot.chars, 0, slot.length);
+					}
+					if (slot.flush) {
+						out.flush();
+					}
+				}
+				if (slot.close) {
+					out.close();
+				}
+			}
+			catch (Throwable e) {
+				if (failure == null) {
+					failure = e;
+				}
+			}
+			
+			boolean close = slot.close;
+			boolean notify = slot.flush || failure != null;
+			long sequence = slot.sequence;
+			slot.length = 0;
+			free.add(slot);
+			
+			if (notify) {
+				synchronized (lock) {
+					written = sequence;
+					lock.notifyAll();
+				}
+			}
+			else {
+				written = sequence;
+			}
+			
+			if (close) {
+				return;
+			}
+		}
+	}
+	
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+		checkFailure();
+	}
+	
+	private void checkFailure() throws IOException {
+		Throwable cause = failure;
+		if (cause != null) {
+			throw new IOException("Write-behind failed: " + cause.getMessage(), cause);
+		}
+	}
+	
+	/** Gets the total time the writing thread has waited for a free buffer, i.e. the I/O time not hidden by the ring.
+	 * @return The time waited, in nanoseconds. */
+	public long getStallNanos() {
+		return stallNanos;
+	}
+	
+	/** Gets the count of writes which had to wait for a free buffer.
+	 * @return The count of stalls. */
+	public long getStallCount() {
+		return stallCount;
+	}
+	
+	/** Gets the count of buffers in the ring.
+	 * @return The ring size. */
+	public int getRingSize() {
+		return ringSize;
+	}
+	
+	private static final class Slot {
+		
+		final char[] chars;
+		int length = 0;
+		long sequence;
+		boolean flush;
+		boolean close;
+		
+		Slot(int size) {
+			chars = new char[size];
+		}
+		
+	}
+	
+}
@@ -0,0 +1,260 @@
+/* Yet Another CSV Reader. Programmed by Rob Nunn.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA
+ */
+package com.nunn.yacsv;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** A {@link java.util.concurrent.Flow.Publisher Flow.Publisher} of the records of a {@link com.nunn.yacsv.CsvReader CsvReader},
+ * parsing only as many records as its subscriber has requested. Parsing and the signals to the subscriber run on the given
+ * {@link java.util.concurrent.Executor Executor}, in one task for as long as there is demand.
+ * <p>A reader can only be read once, so a publisher takes a single subscriber; later subscribers are given an error.
+ * The reader is closed when all records have been published, on an error, or as soon as the subscription is cancelled.
+ * A read blocked in the data source when the subscription is cancelled is interrupted, so a source which responds to interrupts,
+ * e.g. a {@link com.nunn.yacsv.ChannelReader ChannelReader} of a file channel or a pipe, is closed without waiting for more data.</p>
+ * <p>Only available on JDK 9 and newer, from the multi-release jar.</p>
+ * @param <T> The type of the items published: a record, or a batch of records. */
+public class CsvPublisher<T> implements Flow.Publisher<T> {
+	
+	private final CsvReader reader;
+	private final Executor executor;
+	private final ItemReader<T> itemReader;
+	private final AtomicBoolean subscribed = new AtomicBoolean();
+	
+	private CsvPublisher(CsvReader reader, Executor executor, ItemReader<T> itemReader) {
+		if (reader == null) {
+			throw new IllegalArgumentException("Parameter reader can not be null.");
+		}
+		if (executor == null) {
+			throw new IllegalArgumentException("Parameter executor can not be null.");
+		}
+		this.reader = reader;
+		this.executor = executor;
+		this.itemReader = itemReader;
+	}
+	
+	/** Creates a publisher of the remaining records of the reader, one record per item.
+	 * @param reader The reader to publish the records of.
+	 * @param executor The executor to parse and signal the subscriber on.
+	 * @return The publisher. */
+	public static CsvPublisher<String[]> records(CsvReader reader, Executor executor) {
+		return new CsvPublisher<String[]>(reader, executor, csv -> csv.readRecord() ? csv.getValues() : null);
+	}
+	
+	/** Creates a publisher of the remaining records of the reader in batches, so a subscriber asking for a lot of records
+	 * is signalled once per batch rather than once per record. Each item counts as one against the subscriber's demand.
+	 * @param reader The reader to publish the records of.
+	 * @param executor The executor to parse and signal the subscriber on.
+	 * @param batchSize The most records in a batch. Only the last batch may hold fewer.
+	 * @return The publisher. */
+	public static CsvPublisher<List<String[]>> batches(CsvReader reader, Executor executor, int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Parameter batchSize can not be less than 1.");
+		}
+		
+		return new CsvPublisher<List<String[]>>(reader, executor, csv -> {
+			List<String[]> batch = new ArrayList<String[]>(batchSize);
+			while (batch.size() < batchSize && csv.readRecord()) {
+				batch.add(csv.getValues());
+			}
+			return batch.isEmpty() ? null : batch;
+		});
+	}
+	
+	@Override
+	public void subscribe(Flow.Subscriber<? super T> subscriber) {
+		if (subscriber == null) {
+			throw new NullPointerException("Parameter subscriber can not be null.");
+		}
+		
+		if ( ! subscribed.compareAndSet(false, true)) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+				@Override
+				public void request(long n) {
+				}
+				
+				@Override
+				public void cancel() {
+				}
+			});
+			subscriber.onError(new IllegalStateException("This CsvPublisher already has a subscriber."));
+			return;
+		}
+		
+		RecordSubscription subscription = new RecordSubscription(subscriber);
+		subscriber.onSubscribe(subscription);
+	}
+	
+	/** Reads the next item from the reader. */
+	private interface ItemReader<T> {
+		/** @return The item, or null when there are no more records. */
+		T next(CsvReader reader) throws IOException;
+	}
+	
+	private final class RecordSubscription implements Flow.Subscription {
+		
+		private final Flow.Subscriber<? super T> subscriber;
+		private final AtomicLong requested = new AtomicLong();
+		private final AtomicInteger pending = new AtomicInteger(); // signals not yet seen by a drain task, which runs while above 0
+		private volatile boolean cancelled = false;
+		private volatile Throwable invalidRequest = null;
+		private Thread reading = null; // the drain task while it reads from the reader; guarded by this
+		private boolean interrupted = false; // whether cancel() interrupted the reading thread; guarded by this
+		private boolean done = false; // only used by the drain task, or by a signal whose drain task was rejected
+		
+		RecordSubscription(Flow.Subscriber<? super T> subscriber) {
+			this.subscriber = subscriber;
+		}
+		
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				invalidRequest = new IllegalArgumentException("Non-positive request: " + n); // rule 3.9
+			}
+			else {
+				requested.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+			}
+			signal();
+		}
+		
+		@Override
+		public void cancel() {
+			cancelled = true;
+			synchronized (this) {
+				if (reading != null && ! interrupted) {
+					interrupted = true;
+					reading.interrupt();
+				}
+			}
+			signal();
+		}
+		
+		private void signal() {
+			if (pending.getAndIncrement() == 0) {
+				try {
+					executor.execute(this::drain);
+				}
+				catch (RejectedExecutionException e) {
+					finish(e, true); // pending stays above 0, so no drain task can run after this
+				}
+			}
+		}
+		
+		/** Run by one executor task at a time, until no signal is left unseen. */
+		private void drain() {
+			int missed = 1;
+			
+			for (;;) {
+				if ( ! done) {
+					emit();
+				}
+				
+				missed = pending.addAndGet(-missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+		
+		private void emit() {
+			long emitted = 0;
+			long demand = requested.get();
+			
+			for (;;) {
+				if (cancelled) {
+					finish(null, false);
+					return;
+				}
+				if (invalidRequest != null) {
+					finish(invalidRequest, true);
+					return;
+				}
+				
+				if (emitted == demand) {
+					if (demand != Long.MAX_VALUE) {
+						demand = requested.addAndGet(-emitted);
+						emitted = 0;
+					}
+					if (demand == 0) {
+						return;
+					}
+				}
+				
+				T item;
+				synchronized (this) {
+					reading = Thread.currentThread();
+				}
+				try {
+					if (cancelled) { // cancel() may have missed the thread
+						finish(null, false);
+						return;
+					}
+					item = itemReader.next(reader);
+				}
+				catch (IOException | RuntimeException e) {
+					finish(e, ! cancelled);
+					return;
+				}
+				finally {
+					synchronized (this) {
+						reading = null;
+						if (interrupted) {
+							Thread.interrupted(); // don't leave the interrupt to the executor's next task
+						}
+					}
+				}
+				
+				if (item == null) {
+					finish(null, true);
+					return;
+				}
+				
+				try {
+					subscriber.onNext(item);
+				}
+				catch (Throwable e) { // a throwing subscriber counts as cancelled (rule 2.13)
+					finish(e, false);
+					return;
+				}
+				emitted++;
+			}
+		}
+		
+		private void finish(Throwable error, boolean signal) {
+			done = true;
+			reader.close();
+			
+			if (signal) {
+				if (error != null) {
+					subscriber.onError(error);
+				}
+				else {
+					subscriber.onComplete();
+				}
+			}
+		}
+		
+	}
+	
+}
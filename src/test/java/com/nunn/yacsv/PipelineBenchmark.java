@@ -0,0 +1,121 @@
+package com.nunn.yacsv;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** Compares a {@link com.nunn.yacsv.CsvPipeline CsvPipeline} with the hand-written loop doing the same filter and projection. */
+public class PipelineBenchmark {
+	
+	private static final int ROUNDS = 10;
+	private static final int[] COLUMNS = { 0, 3, 7, 12 };
+	
+	public static void main(String[] args) {
+		System.out.println("Pipeline benchmark begun...");
+		
+		Path file = null;
+		
+		try {
+			file = Files.createTempFile("yacsv-pipeline", ".csv");
+			
+			try (Fuzzer fuzzer = new Fuzzer(file)) {
+				fuzzer.writeDataToFile(25, 1000000);
+			}
+			
+			System.out.println("File ready...");
+			
+			for (int i = 0; i < ROUNDS; i++) {
+				long loopStart = System.nanoTime();
+				long loopCount = handWritten(file);
+				long loopTime = System.nanoTime() - loopStart;
+				
+				long pipelineStart = System.nanoTime();
+				long pipelineCount = pipeline(file);
+				long pipelineTime = System.nanoTime() - pipelineStart;
+				
+				System.out.printf("hand-written loop %5d msec, pipeline %5d msec, %d records kept%n",
+						loopTime / 1000000, pipelineTime / 1000000, pipelineCount);
+				
+				if (loopCount != pipelineCount) {
+					System.out.println("Record counts differ: " + loopCount + " from the loop.");
+				}
+			}
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+		}
+		finally {
+			if (file != null) {
+				try {
+					Files.delete(file);
+				}
+				catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		
+		System.out.println("Pipeline benchmark complete.");
+	}
+	
+	private static long handWritten(Path file) throws IOException {
+		long count = 0;
+		
+		try (CsvReader reader = new CsvReader(file, StandardCharsets.UTF_8)) {
+			reader.config.setSafetySwitch(false);
+			CsvWriter writer = new CsvWriter(new NullWriter());
+			
+			while (reader.readRecord()) {
+				String[] values = reader.getValues();
+				
+				if (values.length > 1 && values[1] != null && values[1].startsWith("a")) {
+					String[] selected = new String[COLUMNS.length];
+					for (int i = 0; i < COLUMNS.length; i++) {
+						selected[i] = COLUMNS[i] < values.length ? values[COLUMNS[i]] : "";
+					}
+					writer.writeRecord(selected);
+					count++;
+				}
+			}
+			writer.close();
+		}
+		
+		return count;
+	}
+	
+	private static long pipeline(Path file) throws IOException {
+		try (CsvReader reader = new CsvReader(file, StandardCharsets.UTF_8)) {
+			reader.config.setSafetySwitch(false);
+			CsvWriter writer = new CsvWriter(new NullWriter());
+			
+			long count = CsvPipeline.from(reader)
+					.filter(CellPredicate.startsWith(1, "a"))
+					.select(COLUMNS)
+					.to(writer)
+					.run();
+			
+			writer.close();
+			return count;
+		}
+	}
+	
+	/** Discards the output, so only the parsing and formatting are timed. */
+	private static final class NullWriter extends Writer {
+		
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+		}
+		
+		@Override
+		public void flush() {
+		}
+		
+		@Override
+		public void close() {
+		}
+		
+	}
+	
+}
@@ -28,20 +28,48 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.lang.reflect.Method;
+import java.math.BigDecimal;
 import java.lang.reflect.Modifier;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -2448,4 +2476,1701 @@ public class YacsvTest {
 		reader.close(true);
 	}
 	
+	/** parsing in place over a char array range */
+	@Test
+	public void test178() throws Exception {
+		char[] data = "junk1,\"2\"\"\"\r\n3, 4 junk".toCharArray();
+		
+		CsvReader reader = new CsvReader(data, 4, data.length - 8);
+		reader.config.setCaptureRawRecord(true);
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertArrayEquals(new String[]{"1", "2\""}, reader.getValues());
+		Assert.assertEquals("1,\"2\"\"\"", reader.getRawRecord());
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertArrayEquals(new String[]{"3", " 4 "}, reader.getValues());
+		Assert.assertEquals("3, 4 ", reader.getRawRecord());
+		Assert.assertFalse(reader.readRecord());
+		reader.close();
+		
+		try {
+			new CsvReader(data, 4, data.length).close();
+		}
+		catch (Exception ex) {
+			assertException(new IllegalArgumentException("Parameters offset and length must describe a range within data."), ex);
+		}
+	}
+	
+	/** parsing from CharBuffer and CharSequence sources */
+	@Test
+	public void test179() throws Exception {
+		CharBuffer heap = CharBuffer.wrap("x\n1,2\n3".toCharArray());
+		heap.position(2);
+		
+		CsvReader reader = new CsvReader(heap);
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertArrayEquals(new String[]{"1", "2"}, reader.getValues());
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertArrayEquals(new String[]{"3"}, reader.getValues());
+		Assert.assertFalse(reader.readRecord());
+		reader.close();
+		Assert.assertEquals(2, heap.position());
+		
+		reader = CsvReader.parse(CharBuffer.wrap("a,\"b\"\n"));
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertArrayEquals(new String[]{"a", "b"}, reader.getValues());
+		Assert.assertFalse(reader.readRecord());
+		reader.close();
+		
+		reader = CsvReader.parse(new StringBuilder("a,b,"));
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertArrayEquals(new String[]{"a", "b", null}, reader.getValues());
+		Assert.assertFalse(reader.readRecord());
+		reader.close();
+	}
+	
+	/** reading from a channel in chunks smaller than a record, with multi-byte chars split across chunks */
+	@Test
+	public void test180() throws Exception {
+		String data = "\u00e9t\u00e9,\"\u20ac1,5\"\r\n\ud83d\ude00,\u00fc\u00fc\u00fc\u00fc\u00fc\u00fc\u00fc\u00fc\u00fc\u00fc\n";
+		ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)));
+		
+		CsvReader reader = new CsvReader(channel, StandardCharsets.UTF_8, 16);
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertArrayEquals(new String[]{"\u00e9t\u00e9", "\u20ac1,5"}, reader.getValues());
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertArrayEquals(new String[]{"\ud83d\ude00", "\u00fc\u00fc\u00fc\u00fc\u00fc\u00fc\u00fc\u00fc\u00fc\u00fc"}, reader.getValues());
+		Assert.assertFalse(reader.readRecord());
+		reader.close();
+		Assert.assertFalse(channel.isOpen());
+		
+		try {
+			new CsvReader(channel, StandardCharsets.UTF_8, 8).close();
+		}
+		catch (Exception ex) {
+			assertException(new IllegalArgumentException("Parameter bufferSize can not be less than 16."), ex);
+		}
+	}
+	
+	/** single char reads of a surrogate pair from a channel source */
+	@Test
+	public void test181() throws Exception {
+		byte[] data = "a\ud83d\ude00".getBytes(StandardCharsets.UTF_8);
+		Reader reader = new ChannelReader(Channels.newChannel(new ByteArrayInputStream(data)), StandardCharsets.UTF_8.newDecoder(), 16);
+		Assert.assertEquals('a', reader.read());
+		Assert.assertEquals('\ud83d', reader.read());
+		Assert.assertEquals('\ude00', reader.read());
+		Assert.assertEquals(-1, reader.read());
+		reader.close();
+	}
+	
+	/** reading a file through a ring of outstanding asynchronous reads, in buffers smaller than a record */
+	@Test
+	public void test182() throws Exception {
+		StringBuilder data = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			data.append(i).append(",\u00e9\u20ac\ud83d\ude00").append(i).append(",\"x\"\"").append(i).append("\"\r\n");
+		}
+		Files.write(tempFile.toPath(), data.toString().getBytes(StandardCharsets.UTF_8));
+		
+		AsyncFileReader source = new AsyncFileReader(tempFile.toPath(), StandardCharsets.UTF_8, 3, 16);
+		Assert.assertEquals(3, source.getReadDepth());
+		
+		CsvReader reader = new CsvReader(source);
+		for (int i = 0; i < 500; i++) {
+			Assert.assertTrue(reader.readRecord());
+			Assert.assertArrayEquals(new String[]{"" + i, "\u00e9\u20ac\ud83d\ude00" + i, "x\"" + i}, reader.getValues());
+		}
+		Assert.assertFalse(reader.readRecord());
+		Assert.assertEquals(tempFile.length(), source.getBytesRead());
+		Assert.assertTrue(source.getIoWaitNanos() > 0);
+		reader.close();
+	}
+	
+	/** following a file while it is appended to, keeping a partial record across the end of the file */
+	@Test
+	public void test183() throws Exception {
+		Path path = tempFile.toPath();
+		Files.write(path, "a,b\r\nc,".getBytes(StandardCharsets.UTF_8));
+		
+		Thread appender = new Thread(() -> {
+			try {
+				Thread.sleep(200);
+				Files.write(path, "d\r\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+			}
+			catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		});
+		appender.start();
+		
+		CsvReader reader = CsvReader.follow(path, StandardCharsets.UTF_8, 10, 2000);
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertArrayEquals(new String[]{"a", "b"}, reader.getValues());
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertArrayEquals(new String[]{"c", "d"}, reader.getValues());
+		appender.join();
+		reader.close();
+		
+		reader = CsvReader.follow(path, 50);
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertTrue(reader.readRecord());
+		long start = System.currentTimeMillis();
+		Assert.assertFalse(reader.readRecord());
+		Assert.assertTrue(System.currentTimeMillis() - start >= 50);
+		reader.close();
+	}
+	
+	/** truncating a followed file */
+	@Test
+	public void test184() throws Exception {
+		Path path = tempFile.toPath();
+		Files.write(path, "a,b\r\nc,d\r\n".getBytes(StandardCharsets.UTF_8));
+		
+		CsvReader reader = CsvReader.follow(path, 5000);
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertTrue(reader.readRecord());
+		
+		Files.write(path, "e".getBytes(StandardCharsets.UTF_8), StandardOpenOption.TRUNCATE_EXISTING);
+		
+		try {
+			reader.readRecord();
+			Assert.fail("Expected exception not thrown.");
+		}
+		catch (IOException ex) {
+			assertException(new IOException("File was truncated while being followed: " + path), ex);
+		}
+		reader.close();
+	}
+	
+	/** checkpoint part way through a file, then resume from it by byte offset in a new reader */
+	@Test
+	public void test185() throws Exception {
+		StringBuilder data = new StringBuilder("id,name\r\n");
+		for (int i = 0; i < 3000; i++) {
+			data.append(i).append(",\"\u00e9\u20ac\ud83d\ude00\r\n").append(i).append("\"\r\n");
+		}
+		Path path = tempFile.toPath();
+		Files.write(path, data.toString().getBytes(StandardCharsets.UTF_8));
+		
+		CsvReader reader = new CsvReader(path);
+		Assert.assertTrue(reader.readHeaders());
+		for (int i = 0; i < 1000; i++) {
+			Assert.assertTrue(reader.readRecord());
+		}
+		CsvReader.Checkpoint checkpoint = reader.checkpoint();
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertEquals("1000", reader.get("id"));
+		reader.close();
+		
+		Assert.assertEquals(1000L, checkpoint.getRecordCount());
+		Assert.assertEquals(data.indexOf("1000,"), checkpoint.getCharOffset());
+		Assert.assertEquals(data.substring(0, data.indexOf("1000,")).getBytes(StandardCharsets.UTF_8).length, checkpoint.getByteOffset());
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(checkpoint);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			checkpoint = (CsvReader.Checkpoint) in.readObject();
+		}
+		
+		reader = CsvReader.resume(path, StandardCharsets.UTF_8, checkpoint);
+		Assert.assertArrayEquals(new String[]{"id", "name"}, reader.getHeaders());
+		for (int i = 1000; i < 3000; i++) {
+			Assert.assertTrue(reader.readRecord());
+			Assert.assertEquals(i, reader.getCurrentRecord());
+			Assert.assertEquals("" + i, reader.get("id"));
+			Assert.assertEquals("\u00e9\u20ac\ud83d\ude00\r\n" + i, reader.get("name"));
+			
+			if (i == 2000) {
+				checkpoint = reader.checkpoint();
+			}
+		}
+		Assert.assertFalse(reader.readRecord());
+		Assert.assertEquals(data.length(), reader.checkpoint().getCharOffset());
+		Assert.assertEquals(tempFile.length(), reader.checkpoint().getByteOffset());
+		reader.close();
+		
+		try (FileChannel channel = FileChannel.open(path)) {
+			reader = CsvReader.resume(channel, StandardCharsets.UTF_8, checkpoint);
+			Assert.assertTrue(reader.readRecord());
+			Assert.assertEquals(2001L, reader.getCurrentRecord());
+			Assert.assertEquals("2001", reader.get(0));
+			reader.close();
+		}
+	}
+	
+	/** checkpoints of in-memory data only have a char offset */
+	@Test
+	public void test186() throws Exception {
+		CsvReader reader = CsvReader.parse("1\r\n2\r\n3");
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertEquals(3L, reader.checkpoint().getCharOffset());
+		Assert.assertEquals(-1L, reader.checkpoint().getByteOffset());
+		Assert.assertTrue(reader.hasNext());
+		try {
+			reader.checkpoint();
+			Assert.fail("Expected exception not thrown.");
+		}
+		catch (IllegalStateException ex) {
+			assertException(new IllegalStateException("A record has been read ahead by hasNext(). Call next() before taking a checkpoint."), ex);
+		}
+		Assert.assertArrayEquals(new String[]{"2"}, reader.next());
+		Assert.assertArrayEquals(new String[]{"3"}, reader.next());
+		Assert.assertEquals(7L, reader.checkpoint().getCharOffset());
+		reader.close();
+		
+		try {
+			CsvReader.resume(tempFile.toPath(), StandardCharsets.UTF_8, CsvReader.parse("").checkpoint());
+			Assert.fail("Expected exception not thrown.");
+		}
+		catch (IllegalArgumentException ex) {
+			assertException(new IllegalArgumentException("Parameter checkpoint has no byte offset to resume from."), ex);
+		}
+	}
+	
+	/** escaping cells longer than the writer's buffer */
+	@Test
+	public void test187() throws Exception {
+		String cell = generateString('a', 20000) + "\"" + generateString('b', 20000) + "\\,\r\n";
+		
+		StringWriter output = new StringWriter();
+		CsvWriter writer = new CsvWriter(output);
+		writer.write(cell);
+		writer.write(cell);
+		writer.endRecord();
+		writer.config.setEscapeMode(CsvReader.EscapeMode.BACKSLASH);
+		writer.write(cell);
+		writer.config.setUseTextQualifier(false);
+		writer.write(cell);
+		writer.endRecord();
+		writer.write("#" + cell);
+		writer.close(false);
+		
+		String doubled = "\"" + cell.replace("\"", "\"\"") + "\"";
+		String backslashed = "\"" + cell.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+		String unqualified = cell.replace("\\", "\\\\").replace(",", "\\,").replace("\r", "\\\r").replace("\n", "\\\n");
+		Assert.assertEquals(doubled + "," + doubled + "\r\n" + backslashed + "," + unqualified + "\r\n\\#" + unqualified, output.toString());
+	}
+	
+	/** quoting decisions: lone record delimiter chars, whitespace, trimming, and settings changed through the public fields between cells. */
+	@Test
+	public void test188() throws Exception {
+		StringWriter output = new StringWriter();
+		CsvWriter writer = new CsvWriter(output);
+		writer.write("a\nb");
+		writer.write(" c");
+		writer.write("d\t");
+		writer.writeTrimmed("  e f  ");
+		writer.writeTrimmed(" \"g\" ");
+		writer.endRecord();
+		writer.writeTrimmed("   ");
+		writer.delimiter = '\u00a7';
+		writer.write("h,i");
+		writer.write("j\u00a7k");
+		writer.endRecord();
+		writer.close(false);
+		
+		Assert.assertEquals("\"a\nb\",\" c\",\"d\t\",e f,\"\"\"g\"\"\"\r\n\"\"\u00a7h,i\u00a7\"j\u00a7k\"\r\n", output.toString());
+	}
+	
+	/** encoding straight to bytes, with a surrogate pair split across writes and chars outside single byte charsets */
+	@Test
+	public void test189() throws Exception {
+		String text = "a\u00e9\u20ac\ud83d\ude00,b" + generateString('c', 70000) + "\ud83d\ude00";
+		
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		EncodingWriter writer = new EncodingWriter(stream, StandardCharsets.UTF_8);
+		char[] chars = text.toCharArray();
+		writer.write(chars, 0, 4);
+		writer.write(chars, 4, chars.length - 4);
+		writer.close();
+		Assert.assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), stream.toByteArray());
+		
+		stream = new ByteArrayOutputStream();
+		CsvWriter csvWriter = new CsvWriter(stream, ',', StandardCharsets.US_ASCII);
+		csvWriter.write("a\u00e9");
+		csvWriter.write("b");
+		csvWriter.close();
+		Assert.assertEquals("a?,b", new String(stream.toByteArray(), StandardCharsets.US_ASCII));
+		
+		csvWriter = new CsvWriter(tempFile.toPath(), ',', StandardCharsets.ISO_8859_1);
+		csvWriter.write("\u00e9\u20ac");
+		csvWriter.write(text);
+		csvWriter.endRecord();
+		csvWriter.close();
+		Assert.assertArrayEquals(("\u00e9?,\"" + text + "\"\r\n").getBytes(StandardCharsets.ISO_8859_1), Files.readAllBytes(tempFile.toPath()));
+	}
+	
+	/** numbers and dates formatted straight into the output buffer */
+	@Test
+	public void test190() throws Exception {
+		StringWriter output = new StringWriter();
+		CsvWriter writer = new CsvWriter(output);
+		writer.write(0);
+		writer.write(-42);
+		writer.write(Long.MIN_VALUE);
+		writer.write(Long.MAX_VALUE);
+		writer.endRecord();
+		writer.write(0.1);
+		writer.write(-123.456);
+		writer.write(1.0);
+		writer.write(-0.0);
+		writer.write(0.001);
+		writer.write(1e7);
+		writer.write(1e-4);
+		writer.write(Double.NaN);
+		writer.endRecord();
+		writer.writeDecimal(new BigDecimal("123.4500"));
+		writer.writeDecimal(new BigDecimal("-0.001"));
+		writer.writeDecimal(new BigDecimal("1E+3"));
+		writer.writeDecimal(new BigDecimal("1E+30"));
+		writer.writeDecimal(new BigDecimal("12345678901234567890.5"));
+		writer.writeDecimal(null);
+		writer.endRecord();
+		writer.writeDate(LocalDate.of(2024, 3, 7));
+		writer.writeInstant(Instant.ofEpochSecond(1, 500));
+		writer.config.setDateFormatter(DateTimeFormatter.ofPattern("d MMM uuuu", Locale.ENGLISH));
+		writer.writeDate(LocalDate.of(2024, 3, 7));
+		writer.endRecord();
+		writer.config.setDelimiter('.');
+		writer.write(1.5);
+		writer.write(-7);
+		writer.endRecord();
+		writer.config.setComment('-');
+		writer.config.setDelimiter(',');
+		writer.write(-7);
+		writer.endRecord();
+		writer.close(false);
+		
+		Assert.assertEquals("0,-42,-9223372036854775808,9223372036854775807\r\n"
+				+ "0.1,-123.456,1,-0,0.001,1.0E7,1.0E-4,NaN\r\n"
+				+ "123.4500,-0.001,1000,1000000000000000000000000000000,12345678901234567890.5,\r\n"
+				+ "2024-03-07,1970-01-01T00:00:01.000000500Z,7 Mar 2024\r\n"
+				+ "\"1.5\".-7\r\n"
+				+ "\"-7\"\r\n", output.toString());
+		
+		for (double value : new double[] { 0.3, 2.675, 1234567.891, 0.1 + 0.2, 9999999.999999998, Math.PI, 1 / 3.0 }) {
+			output = new StringWriter();
+			writer = new CsvWriter(output);
+			writer.write(value);
+			writer.close(false);
+			Assert.assertEquals(value, Double.parseDouble(output.toString()), 0);
+			Assert.assertTrue(output.toString().length() <= Double.toString(value).length());
+		}
+		
+		// typed values have names of their own, so a null cell still resolves to write(String)
+		output = new StringWriter();
+		writer = new CsvWriter(output);
+		writer.write(null);
+		writer.write("a");
+		writer.endRecord();
+		writer.close(false);
+		Assert.assertEquals("\"\",a\r\n", output.toString());
+	}
+	
+	/** records formatted on worker threads are written in order, and write errors reach the producer */
+	@Test
+	public void test191() throws Exception {
+		StringWriter expected = new StringWriter();
+		CsvWriter sequential = new CsvWriter(expected, ';');
+		StringWriter output = new StringWriter();
+		CsvWriter target = new CsvWriter(output, ';');
+		
+		try (ParallelCsvWriter writer = new ParallelCsvWriter(target, 4, 100, 3)) {
+			for (int i = 0; i < 25000; i++) {
+				String[] values = new String[] { Integer.toString(i), "a;b" + i, "say \"" + i + "\"", i % 7 == 0 ? "" : " x " };
+				sequential.writeRecord(values);
+				writer.writeRecord(values);
+				
+				if (i == 12345) {
+					writer.flush();
+					target.config.setForceQualifier(true);
+					sequential.config.setForceQualifier(true);
+				}
+			}
+		}
+		sequential.close();
+		
+		Assert.assertEquals(expected.toString(), output.toString());
+		
+		Writer failing = new Writer() {
+			@Override
+			public void write(char[] cbuf, int off, int len) throws IOException {
+				throw new IOException("disk full");
+			}
+			
+			@Override
+			public void flush() {
+			}
+			
+			@Override
+			public void close() {
+			}
+		};
+		
+		ParallelCsvWriter writer = new ParallelCsvWriter(new CsvWriter(failing), 2, 10, 2);
+		try {
+			for (int i = 0; i < 100000; i++) {
+				writer.writeRecord(new String[] { "some data to fill the buffer" });
+			}
+			writer.flush();
+			Assert.fail("Exception should have been thrown.");
+		}
+		catch (Exception ex) {
+			assertException(new IOException("disk full"), ex);
+		}
+		finally {
+			writer.close();
+		}
+	}
+	
+	/** write-behind: output order, flushing, the fail-fast policy and errors of the I/O thread */
+	@Test
+	public void test192() throws Exception {
+		StringWriter expected = new StringWriter();
+		CsvWriter sequential = new CsvWriter(expected);
+		StringWriter output = new StringWriter();
+		WriteBehindWriter writeBehind = new WriteBehindWriter(output, 2, 64, WriteBehindWriter.FullRingPolicy.BLOCK);
+		CsvWriter writer = new CsvWriter(writeBehind);
+		
+		for (int i = 0; i < 10000; i++) {
+			String[] values = new String[] { Integer.toString(i), "value \"" + i + "\"" };
+			sequential.writeRecord(values);
+			writer.writeRecord(values);
+			
+			if (i == 5000) {
+				writer.flush();
+				sequential.flush();
+				Assert.assertEquals(expected.toString(), output.toString());
+			}
+		}
+		writer.close();
+		sequential.close();
+		
+		Assert.assertEquals(expected.toString(), output.toString());
+		Assert.assertEquals(2, writeBehind.getRingSize());
+		
+		CountDownLatch release = new CountDownLatch(1);
+		Writer stalled = new Writer() {
+			@Override
+			public void write(char[] cbuf, int off, int len) throws IOException {
+				try {
+					release.await();
+				}
+				catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+			}
+			
+			@Override
+			public void flush() {
+			}
+			
+			@Override
+			public void close() {
+			}
+		};
+		
+		writeBehind = new WriteBehindWriter(stalled, 2, 4, WriteBehindWriter.FullRingPolicy.FAIL_FAST);
+		try {
+			for (int i = 0; i < 100; i++) {
+				writeBehind.write("abcd");
+			}
+			Assert.fail("Exception should have been thrown.");
+		}
+		catch (Exception ex) {
+			assertException(new IOException("All 2 write-behind buffers are waiting to be written."), ex);
+		}
+		release.countDown();
+		writeBehind.close();
+		
+		Writer failing = new Writer() {
+			@Override
+			public void write(char[] cbuf, int off, int len) throws IOException {
+				throw new IOException("disk full");
+			}
+			
+			@Override
+			public void flush() {
+			}
+			
+			@Override
+			public void close() {
+			}
+		};
+		
+		writeBehind = new WriteBehindWriter(failing, 2, 4, WriteBehindWriter.FullRingPolicy.BLOCK);
+		try {
+			for (int i = 0; i < 100; i++) {
+				writeBehind.write("abcd");
+			}
+			writeBehind.flush();
+			Assert.fail("Exception should have been thrown.");
+		}
+		catch (Exception ex) {
+			assertException(new IOException("Write-behind failed: disk full"), ex);
+		}
+		try {
+			writeBehind.close();
+			Assert.fail("Exception should have been thrown.");
+		}
+		catch (Exception ex) {
+			assertException(new IOException("Write-behind failed: disk full"), ex);
+		}
+	}
+	
+	/** blocks deflated in parallel join into one gzip stream, compressing about as well as GZIPOutputStream */
+	@Test
+	public void test193() throws Exception {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		StringWriter expected = new StringWriter();
+		CsvWriter sequential = new CsvWriter(expected);
+		CsvWriter writer = new CsvWriter(new ParallelGzipOutputStream(compressed, Deflater.DEFAULT_COMPRESSION, 4, 32768, 3), ',', StandardCharsets.UTF_8);
+		
+		for (int i = 0; i < 50000; i++) {
+			String[] values = new String[] { Integer.toString(i), "name " + (i * 7919 % 1000), "caf\u00e9, " + (i % 13) };
+			sequential.writeRecord(values);
+			writer.writeRecord(values);
+			
+			if (i == 20000) {
+				writer.flush();
+			}
+		}
+		writer.close();
+		sequential.close();
+		
+		byte[] data = expected.toString().getBytes(StandardCharsets.UTF_8);
+		ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+		try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+			byte[] buffer = new byte[8192];
+			for (int count; (count = input.read(buffer)) > -1; ) {
+				decompressed.write(buffer, 0, count);
+			}
+		}
+		Assert.assertArrayEquals(data, decompressed.toByteArray());
+		
+		ByteArrayOutputStream reference = new ByteArrayOutputStream();
+		try (GZIPOutputStream output = new GZIPOutputStream(reference)) {
+			output.write(data);
+		}
+		Assert.assertTrue(compressed.size() < reference.size() * 1.1);
+		
+		compressed = new ByteArrayOutputStream();
+		new ParallelGzipOutputStream(compressed).close();
+		try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+			Assert.assertEquals(-1, input.read());
+		}
+	}
+	
+	/** batch and columnar writes */
+	@Test
+	public void test194() throws Exception {
+		StringWriter output = new StringWriter();
+		CsvWriter writer = new CsvWriter(output);
+		writer.writeRecords(Arrays.asList(new String[] { "a", "b,c" }, null, new String[0], new String[] { null, "d" }));
+		
+		BitSet nulls = new BitSet();
+		nulls.set(1);
+		writer.writeColumns(3,
+				CsvWriter.Column.of(new long[] { 1, 2, 3, 4 }, null),
+				CsvWriter.Column.of(new double[] { 0.5, 1.5, -2.25 }, nulls),
+				CsvWriter.Column.of(new String[] { "x", null, "y\"z" }, null));
+		writer.close(false);
+		
+		Assert.assertEquals("a,\"b,c\"\r\n\"\",d\r\n1,0.5,x\r\n2,,\r\n3,-2.25,\"y\"\"z\"\r\n", output.toString());
+		
+		try {
+			new CsvWriter(new StringWriter()).writeColumns(2, CsvWriter.Column.of(new long[] { 1, 2 }, null), CsvWriter.Column.of(new String[] { "x" }, null));
+			Assert.fail("Exception should have been thrown.");
+		}
+		catch (Exception ex) {
+			assertException(new IllegalArgumentException("Column 1 has fewer than 2 values."), ex);
+		}
+		
+		try {
+			new CsvWriter(new StringWriter()).writeRecords(null);
+			Assert.fail("Exception should have been thrown.");
+		}
+		catch (Exception ex) {
+			assertException(new IllegalArgumentException("Parameter records can not be null."), ex);
+		}
+	}
+	
+	/** writing char sequences and char array ranges without converting them to strings */
+	@Test
+	public void test195() throws Exception {
+		char[] data = "xxa,b yy".toCharArray();
+		CharBuffer slice = CharBuffer.wrap("--\"q\"--".toCharArray());
+		slice.position(2);
+		slice = slice.slice();
+		slice.limit(3);
+		
+		StringWriter output = new StringWriter();
+		CsvWriter writer = new CsvWriter(output);
+		writer.write(new StringBuilder("s b"));
+		writer.write(new StringBuffer(" t"));
+		writer.write(slice);
+		writer.write(CharBuffer.wrap("plain"));
+		writer.write(data, 2, 4);
+		writer.write(data, 0, 0);
+		writer.write((CharSequence) null);
+		writer.endRecord();
+		writer.close(false);
+		
+		Assert.assertEquals("s b,\" t\",\"\"\"q\"\"\",plain,\"a,b \",,\r\n", output.toString());
+		
+		try {
+			new CsvWriter(new StringWriter()).write(data, 6, 3);
+			Assert.fail("Exception should have been thrown.");
+		}
+		catch (Exception ex) {
+			assertException(new IllegalArgumentException("Parameters offset and length must describe a range within data."), ex);
+		}
+	}
+	
+	/** transcoding straight from a reader's record to a writer in another dialect */
+	@Test
+	public void test196() throws Exception {
+		String data = "a;\"b;c\";\"say \"\"hi\"\"\"\r\n;\"\";x,y\r\n\r\n\"multi\r\nline\";" + generateString('z', 20000) + "\r\n";
+		
+		CsvReader reader = new CsvReader(new StringReader(data));
+		reader.config.setDelimiter(';');
+		reader.config.setEmptyCellHandling(EmptyCellHandling.NONQUOTED_NULL_QUOTED_EMPTY);
+		StringWriter output = new StringWriter();
+		CsvWriter writer = new CsvWriter(output);
+		writer.config.setRecordDelimiter("\n");
+		
+		StringWriter expected = new StringWriter();
+		CsvWriter reference = new CsvWriter(expected);
+		reference.config.setRecordDelimiter("\n");
+		
+		while (reader.readRecord()) {
+			writer.writeCurrentRecord(reader);
+			writer.writeCell(reader, 1);
+			writer.writeCell(reader, 7);
+			writer.endRecord();
+			reference.writeRecord(reader.getValues());
+			reference.write(reader.get(1));
+			reference.write(reader.get(7));
+			reference.endRecord();
+		}
+		writer.close(false);
+		reference.close(false);
+		reader.close();
+		
+		Assert.assertEquals(expected.toString(), output.toString());
+		Assert.assertTrue(output.toString().startsWith("a,b;c,\"say \"\"hi\"\"\"\nb;c,\n\"\",,\"x,y\"\n\"\",\n\"multi\r\nline\","));
+	}
+	
+	/** filter predicates skip records while parsing, with and without the line prefilter */
+	@Test
+	public void test197() throws Exception {
+		String data = "id,status,amount\r\n1,OK,5\r\n2,FAILED,12.5\r\n3,\"FAILED\",7\r\n4,OK,FAILED\r\n5,FAILED_X,3\r\n6\r\n7,FAILED,-1e2\r\n";
+		
+		CsvReader reader = new CsvReader(new StringReader(data));
+		reader.config.setFilter(CellPredicate.equalTo(1, "FAILED"));
+		Assert.assertTrue(reader.readHeaders());
+		Assert.assertEquals("status", reader.getHeader(1));
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertEquals("2", reader.get(0));
+		Assert.assertEquals(1L, reader.getCurrentRecord());
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertEquals("3", reader.get(0));
+		Assert.assertTrue(reader.isQualified(1));
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertEquals("7", reader.get(0));
+		Assert.assertEquals(6L, reader.getCurrentRecord());
+		Assert.assertFalse(reader.readRecord());
+		reader.close();
+		
+		reader = new CsvReader(new StringReader(data));
+		reader.readHeaders();
+		reader.config.setFilter(CellPredicate.startsWith(1, "FAIL"), CellPredicate.between(2, 0, 10));
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertEquals("3", reader.get(0));
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertEquals("5", reader.get(0));
+		Assert.assertFalse(reader.readRecord());
+		reader.close();
+		
+		reader = new CsvReader(new StringReader(data));
+		reader.readHeaders();
+		reader.config.setFilter(CellPredicate.in(0, "6", "4", "9"));
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertEquals("4", reader.get(0));
+		Assert.assertEquals("FAILED", reader.get(2));
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertEquals("6", reader.get(0));
+		Assert.assertEquals(1, reader.getColumnCount());
+		Assert.assertFalse(reader.readRecord());
+		reader.close();
+		
+		reader = new CsvReader(new StringReader(data));
+		reader.readHeaders();
+		reader.config.setFilter(CellPredicate.equalTo(2, ""));
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertEquals("6", reader.get(0));
+		Assert.assertFalse(reader.readRecord());
+		reader.close();
+		
+		Assert.assertEquals(-100.0, CellPredicate.parseNumber("-1e2".toCharArray(), 0, 4), 0.0);
+		Assert.assertEquals(0.1, CellPredicate.parseNumber("x0.1".toCharArray(), 1, 3), 0.0);
+		Assert.assertTrue(Double.isNaN(CellPredicate.parseNumber("1.2.3".toCharArray(), 0, 5)));
+	}
+	
+	/** a pipeline filters, selects and transforms columns in one pass */
+	@Test
+	public void test198() throws Exception {
+		String data = "id,status,note\r\n1,OK,fine\r\n2,FAILED,\" disk, full \"\r\n3,FAILED,\"say \"\"no\"\"\"\r\n4\r\n";
+		
+		CsvReader reader = new CsvReader(new StringReader(data));
+		StringWriter output = new StringWriter();
+		CsvWriter writer = new CsvWriter(output);
+		writer.config.setRecordDelimiter("\n");
+		
+		long count = CsvPipeline.from(reader)
+				.withHeaders()
+				.filter(CellPredicate.equalTo(1, "FAILED"))
+				.select(2, 0, 5)
+				.map(2, String::trim)
+				.to(writer)
+				.run();
+		
+		Assert.assertEquals(2L, count);
+		Assert.assertEquals("note,id,\n\"disk, full\",2,\n\"say \"\"no\"\"\",3,\n", output.toString());
+		Assert.assertEquals(0, reader.config.getFilter().length);
+		reader.close();
+		
+		reader = new CsvReader(new StringReader(data));
+		output = new StringWriter();
+		writer = new CsvWriter(output);
+		writer.config.setRecordDelimiter("\n");
+		
+		Assert.assertEquals(5L, CsvPipeline.from(reader).to(writer).run());
+		Assert.assertEquals("id,status,note\n1,OK,fine\n2,FAILED,\" disk, full \"\n3,FAILED,\"say \"\"no\"\"\"\n4\n", output.toString());
+		reader.close();
+	}
+	
+	/** records mapped on worker threads are written in the order they were read */
+	@Test
+	public void test199() throws Exception {
+		StringBuilder data = new StringBuilder();
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			data.append(i).append(",row").append(i).append("\r\n");
+			if (i % 7 != 0) {
+				expected.append("ROW").append(i).append(',').append(i * 2).append("\r\n");
+			}
+		}
+		
+		CsvReader reader = new CsvReader(new StringReader(data.toString()));
+		StringWriter output = new StringWriter();
+		CsvWriter writer = new CsvWriter(output);
+		
+		ParallelRecordMapper mapper = new ParallelRecordMapper(reader, writer, values -> {
+			int number = Integer.parseInt(values[0]);
+			return number % 7 == 0 ? null : new String[] { values[1].toUpperCase(Locale.ROOT), String.valueOf(number * 2) };
+		}, 4, 3, 2);
+		
+		Assert.assertEquals(857L, mapper.run());
+		Assert.assertEquals(expected.toString(), output.toString());
+		reader.close();
+		
+		try {
+			mapper.run();
+			Assert.fail("Exception expected.");
+		}
+		catch (IllegalStateException e) {
+			Assert.assertEquals("This instance of the ParallelRecordMapper class has already been run.", e.getMessage());
+		}
+		
+		reader = new CsvReader(new StringReader(data.toString()));
+		mapper = new ParallelRecordMapper(reader, new CsvWriter(new StringWriter()), values -> {
+			if (values[0].equals("500")) {
+				throw new IllegalArgumentException("bad value");
+			}
+			return values;
+		}, 2, 10, 2);
+		
+		try {
+			mapper.run();
+			Assert.fail("Exception expected.");
+		}
+		catch (IOException e) {
+			Assert.assertEquals("Error while mapping a batch: Record 500 of batch 50 could not be mapped: bad value", e.getMessage());
+		}
+		reader.close();
+	}
+	
+	/** many threads take every record exactly once from a batched source, and batches are reused */
+	@Test
+	public void test200() throws Exception {
+		StringBuilder data = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			data.append(i).append(",x\r\n");
+		}
+		
+		ConcurrentRecordSource shared = new ConcurrentRecordSource(new CsvReader(new StringReader(data.toString())), 64);
+		boolean[] seen = new boolean[10000];
+		AtomicInteger errors = new AtomicInteger();
+		Thread[] threads = new Thread[4];
+		
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				try {
+					ConcurrentRecordSource.RecordBatch batch;
+					while ((batch = shared.nextBatch()) != null) {
+						for (int i = 0; i < batch.size(); i++) {
+							int number = Integer.parseInt(batch.get(i)[0]);
+							if (number != batch.getRecordNumber(i)) {
+								errors.incrementAndGet();
+							}
+							synchronized (seen) {
+								if (seen[number]) {
+									errors.incrementAndGet();
+								}
+								seen[number] = true;
+							}
+						}
+						shared.release(batch);
+					}
+				}
+				catch (Exception e) {
+					errors.incrementAndGet();
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		
+		Assert.assertEquals(0, errors.get());
+		for (int i = 0; i < seen.length; i++) {
+			Assert.assertTrue(seen[i]);
+		}
+		Assert.assertNull(shared.nextBatch());
+		shared.close();
+		
+		ConcurrentRecordSource source = new ConcurrentRecordSource(new CsvReader(new StringReader("a,b\r\nc,d\r\ne,f\r\n")), 2);
+		ConcurrentRecordSource.RecordBatch first = source.nextBatch();
+		Assert.assertEquals(2, first.size());
+		String[] reused = first.get(0);
+		source.release(first);
+		ConcurrentRecordSource.RecordBatch second = source.nextBatch();
+		Assert.assertSame(first, second);
+		Assert.assertEquals(1, second.size());
+		Assert.assertSame(reused, second.get(0));
+		Assert.assertEquals("e", second.get(0)[0]);
+		Assert.assertEquals(2L, second.getRecordNumber(0));
+		source.close();
+	}
+	
+	/** a dataset reader reads every matching file of a directory tree, tagging records with their file */
+	@Test
+	public void test201() throws Exception {
+		Path directory = Files.createTempDirectory("yacsv-dataset");
+		Path nested = Files.createDirectory(directory.resolve("nested"));
+		List<Path> created = new ArrayList<Path>();
+		
+		try {
+			for (int i = 0; i < 30; i++) {
+				StringBuilder data = new StringBuilder("file,row\r\n");
+				for (int j = 0; j < 20; j++) {
+					data.append(i).append(',').append(j).append("\r\n");
+				}
+				Path file = (i % 3 == 0 ? nested : directory).resolve("part-" + i + ".csv");
+				Files.write(file, data.toString().getBytes(StandardCharsets.UTF_8));
+				created.add(file);
+			}
+			Path ignored = directory.resolve("notes.txt");
+			Files.write(ignored, "x,y\r\n".getBytes(StandardCharsets.UTF_8));
+			created.add(ignored);
+			
+			DatasetReader dataset = new DatasetReader(directory, "**.csv").setParallelism(4);
+			Assert.assertEquals(30, dataset.getFiles().size());
+			Assert.assertEquals(20, new DatasetReader(directory, "*.csv").getFiles().size());
+			
+			dataset.setReaderSetup((file, reader) -> reader.readHeaders());
+			int[] rows = new int[30];
+			AtomicInteger errors = new AtomicInteger();
+			
+			long count = dataset.forEach((file, record) -> {
+				int fileNumber = Integer.parseInt(record.get("file"));
+				if ( ! file.getFileName().toString().equals("part-" + fileNumber + ".csv") || Integer.parseInt(record.get(1)) != record.getCurrentRecord()) {
+					errors.incrementAndGet();
+				}
+				synchronized (rows) {
+					rows[fileNumber]++;
+				}
+			});
+			
+			Assert.assertEquals(600L, count);
+			Assert.assertEquals(0, errors.get());
+			for (int i = 0; i < rows.length; i++) {
+				Assert.assertEquals(20, rows[i]);
+			}
+			
+			try {
+				dataset.forEach((file, record) -> {
+					if (file.getFileName().toString().equals("part-7.csv")) {
+						throw new IOException("stop");
+					}
+				});
+				Assert.fail("Exception expected.");
+			}
+			catch (IOException e) {
+				Assert.assertEquals("Error while reading " + directory.resolve("part-7.csv") + ": stop", e.getMessage());
+			}
+		}
+		finally {
+			for (Path file : created) {
+				Files.delete(file);
+			}
+			Files.delete(nested);
+			Files.delete(directory);
+		}
+		
+		BufferPool pool = new BufferPool(4);
+		BufferPool.Buffers buffers = pool.acquire(StandardCharsets.UTF_8);
+		pool.release(buffers);
+		Assert.assertSame(buffers, pool.acquire(StandardCharsets.UTF_8));
+		Assert.assertEquals(StandardCharsets.ISO_8859_1, pool.acquire(StandardCharsets.ISO_8859_1).decoder.charset());
+	}
+	
+	/** reset keeps the config and buffers and clears parse state; pooled readers go back to their pool on close */
+	@Test
+	public void test202() throws Exception {
+		char[] data = "a;b\r\n1;2\r\n".toCharArray();
+		CsvReader reader = new CsvReader(data);
+		reader.config.setDelimiter(';');
+		Assert.assertTrue(reader.readHeaders());
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertEquals("2", reader.get("b"));
+		
+		reader.reset(new StringReader("x;y\r\n3;4\r\n5;6"));
+		Assert.assertEquals(0, reader.getHeaderCount());
+		Assert.assertEquals(-1, reader.getIndex("b"));
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertEquals(0L, reader.getCurrentRecord());
+		Assert.assertEquals("y", reader.get(1));
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertEquals("4", reader.get(1));
+		Assert.assertEquals("a;b\r\n1;2\r\n", new String(data)); // the caller's array is never written to
+		
+		reader.close();
+		reader.reset(new StringReader("7;8"));
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertEquals("8", reader.get(1));
+		Assert.assertFalse(reader.readRecord());
+		reader.close();
+		
+		Path file = Files.createTempFile("yacsv-reset", ".csv");
+		try {
+			Files.write(file, "c;d\r\n9;10\r\n".getBytes(StandardCharsets.UTF_8));
+			reader.reset(file);
+			Assert.assertTrue(reader.readHeaders());
+			Assert.assertTrue(reader.readRecord());
+			Assert.assertEquals("10", reader.get("d"));
+			reader.reset(file, StandardCharsets.UTF_8);
+			Assert.assertTrue(reader.readRecord());
+			Assert.assertEquals("c", reader.get(0));
+			reader.close();
+			
+			CsvReaderPool pool = new CsvReaderPool(1);
+			CsvReader pooled;
+			try (CsvReader first = pool.get("e,f\r\n")) {
+				pooled = first;
+				Assert.assertTrue(first.readRecord());
+				Assert.assertEquals("f", first.get(1));
+			}
+			
+			CsvReader kept;
+			try (CsvReader second = pool.get(file)) {
+				kept = second;
+				Assert.assertNotSame(pooled, second); // the buffers come back in a new reader
+				Assert.assertTrue(second.readRecord());
+				Assert.assertEquals("c;d", second.get(0));
+				
+				second.config.setDelimiter(';');
+				Assert.assertTrue(second.readRecord());
+				Assert.assertEquals("10", second.get(1));
+			}
+			pooled.close(); // already closed, so nothing happens
+			
+			CsvReader third = pool.get(new StringReader("g;h"));
+			CsvReader fourth = pool.get(new StringReader("i;j"));
+			kept.close(); // closed twice, which must not close the reader handed out with its buffers
+			Assert.assertNotSame(kept, third);
+			Assert.assertNotSame(third, fourth);
+			Assert.assertTrue(third.readRecord());
+			Assert.assertEquals("h", third.get(1)); // the config is kept
+			Assert.assertTrue(fourth.readRecord());
+			Assert.assertEquals("i;j", fourth.get(0));
+			third.close();
+			fourth.close();
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+	
+	/** cells and raw records spanning many refills of the read buffer, including ones longer than the buffer */
+	@Test
+	public void test203() throws Exception {
+		StringBuilder longCell = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			longCell.append((char) ('a' + i % 26));
+		}
+		String data = "id,text,note\r\n"
+				+ "1,\"say \"\"" + longCell + "\"\" twice\",x\r\n"
+				+ "2," + longCell + ",\"a\r\nb\"\r\n"
+				+ "3,,\"\"\r\n"
+				+ "4,\"" + longCell + "\"";
+		
+		for (int chunk : new int[]{1, 7, 8192, 100000}) {
+			CsvReader expected = CsvReader.parse(data);
+			CsvReader reader = new CsvReader(new StringReader(data) {
+				@Override
+				public int read(char[] buffer, int offset, int length) throws IOException {
+					return super.read(buffer, offset, Math.min(length, chunk));
+				}
+			});
+			expected.config.setCaptureRawRecord(true);
+			reader.config.setCaptureRawRecord(true);
+			
+			while (expected.readRecord()) {
+				Assert.assertTrue(reader.readRecord());
+				Assert.assertArrayEquals(expected.getValues(), reader.getValues());
+				Assert.assertEquals(expected.getRawRecord(), reader.getRawRecord());
+			}
+			Assert.assertFalse(reader.readRecord());
+			reader.close();
+		}
+		
+		CsvReader reader = new CsvReader(new StringReader(data));
+		Assert.assertTrue(reader.readHeaders());
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertEquals("say \"" + longCell + "\" twice", reader.get(1));
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertEquals(longCell.toString(), reader.get(1));
+		Assert.assertEquals("a\r\nb", reader.get(2));
+		Assert.assertEquals(data.indexOf("3,"), reader.checkpoint().getCharOffset());
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertEquals(longCell.toString(), reader.get(1));
+		Assert.assertEquals(data.length(), reader.checkpoint().getCharOffset());
+		reader.close();
+	}
+	
+	/** buffer sizes are configurable, and adaptive buffers shrink again after a long record */
+	@Test
+	public void test204() throws Exception {
+		StringBuilder data = new StringBuilder("a,b\r\n1,");
+		for (int i = 0; i < 500000; i++) {
+			data.append('x');
+		}
+		data.append("\r\n");
+		for (int i = 0; i < 200; i++) {
+			data.append(i).append(",\"").append(i).append("\"\r\n");
+		}
+		
+		CsvReader reader = new CsvReader(new StringReader(data.toString()));
+		Assert.assertEquals(8192, reader.config.getReadBufferSize());
+		Assert.assertEquals(1024, reader.config.getCellBufferSize());
+		Assert.assertEquals(16, reader.config.getInitialColumnCount());
+		Assert.assertFalse(reader.config.getAdaptiveBuffers());
+		
+		reader.config.setReadBufferSize(64).config.setCellBufferSize(2048).config.setInitialColumnCount(40).config.setMaxCellLength(500000);
+		Assert.assertEquals(64, reader.config.getReadBufferSize());
+		Assert.assertEquals(2048, reader.getCellChars().length);
+		Assert.assertTrue(reader.readHeaders());
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertEquals(500000, reader.get(1).length());
+		Assert.assertTrue(reader.getCellChars().length >= 500001);
+		for (int i = 0; i < 200; i++) {
+			Assert.assertTrue(reader.readRecord());
+		}
+		Assert.assertTrue(reader.getCellChars().length >= 500001); // buffers only grow
+		reader.close();
+		
+		reader = new CsvReader(new StringReader(data.toString()));
+		reader.config.setAdaptiveBuffers(true).config.setSafetySwitch(false);
+		Assert.assertTrue(reader.readHeaders());
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertEquals(500000, reader.get("b").length());
+		for (int i = 0; i < 200; i++) {
+			Assert.assertTrue(reader.readRecord());
+			Assert.assertEquals("" + i, reader.get(0));
+			Assert.assertEquals("" + i, reader.get("b"));
+		}
+		Assert.assertFalse(reader.readRecord());
+		Assert.assertTrue(reader.getCellChars().length < 4096);
+		reader.close();
+		
+		try {
+			reader.config.setReadBufferSize(8);
+			Assert.fail("Exception expected.");
+		}
+		catch (IllegalArgumentException e) {
+			Assert.assertEquals("Parameter size can not be less than 16.", e.getMessage());
+		}
+	}
+	
+	/** limits on columns, cell and record length and buffer memory either throw or skip the record */
+	@Test
+	public void test205() throws Exception {
+		StringBuilder unclosed = new StringBuilder("a,b\r\n1,\"");
+		for (int i = 0; i < 300000; i++) {
+			unclosed.append('x');
+		}
+		CsvReader reader = new CsvReader(new StringReader(unclosed.toString()));
+		Assert.assertEquals(CsvReader.LimitPolicy.THROW, reader.config.getLimitPolicy());
+		Assert.assertTrue(reader.readRecord());
+		try {
+			reader.readRecord();
+			Assert.fail("Exception expected.");
+		}
+		catch (IOException e) {
+			Assert.assertEquals("Maximum column length of 100,000 exceeded in column 1 in record 1. Set the SafetySwitch property to false"
+					+ " if you're expecting column lengths greater than 100,000 characters to avoid this error.", e.getMessage());
+		}
+		try {
+			reader.readRecord();
+			Assert.fail("Exception expected.");
+		}
+		catch (IOException e) {
+			Assert.assertEquals("This instance of the " + CsvReader.class.getSimpleName() + " class has already been closed.", e.getMessage());
+		}
+		
+		StringBuilder data = new StringBuilder("id,text\r\n1,ok\r\n2");
+		for (int i = 0; i < 20; i++) {
+			data.append(",c");
+		}
+		data.append("\r\n3,");
+		for (int i = 0; i < 5000; i++) {
+			data.append('y');
+		}
+		data.append("\r\n4,\"a\"\"b\"\r\n5");
+		for (int i = 0; i < 500; i++) {
+			data.append(",1234567");
+		}
+		data.append("\r\n6,last");
+		
+		for (int chunk : new int[]{7, 100000}) {
+			reader = new CsvReader(new StringReader(data.toString()) {
+				@Override
+				public int read(char[] buffer, int offset, int length) throws IOException {
+					return super.read(buffer, offset, Math.min(length, chunk));
+				}
+			});
+			reader.config.setMaxColumns(10).config.setMaxCellLength(1000).config.setMaxRecordLength(2000);
+			reader.config.setLimitPolicy(CsvReader.LimitPolicy.SKIP_RECORD);
+			Assert.assertTrue(reader.readHeaders());
+			
+			Assert.assertTrue(reader.readRecord());
+			Assert.assertArrayEquals(new String[]{"1", "ok"}, reader.getValues());
+			Assert.assertTrue(reader.readRecord());
+			Assert.assertArrayEquals(new String[]{"4", "a\"b"}, reader.getValues());
+			Assert.assertEquals(3L, reader.getCurrentRecord());
+			Assert.assertTrue(reader.readRecord());
+			Assert.assertArrayEquals(new String[]{"6", "last"}, reader.getValues());
+			Assert.assertEquals(5L, reader.getCurrentRecord());
+			Assert.assertFalse(reader.readRecord());
+			reader.close();
+		}
+		
+		reader = new CsvReader(new StringReader(data.toString()));
+		reader.config.setSafetySwitch(false).config.setMaxBufferMemory(25000).config.setLimitPolicy(CsvReader.LimitPolicy.SKIP_RECORD);
+		Assert.assertFalse(reader.config.getSafetySwitch());
+		Assert.assertEquals(Integer.MAX_VALUE, reader.config.getMaxColumns());
+		Assert.assertTrue(reader.readHeaders());
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertEquals(21, reader.getColumnCount());
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertEquals("4", reader.get(0)); // the 5000 char cell would grow the cell buffer past the limit
+		reader.close();
+		
+		reader = CsvReader.parse(data.toString());
+		reader.config.setMaxColumns(1).config.setLimitPolicy(CsvReader.LimitPolicy.SKIP_RECORD);
+		try {
+			reader.readHeaders();
+			Assert.fail("Exception expected.");
+		}
+		catch (IOException e) {
+			Assert.assertEquals("Maximum column count of 1 exceeded in record 0. Configure config.setSafetySwitch(false)"
+					+ " if you're expecting more than 1 columns per record to avoid this error.", e.getMessage());
+		}
+		
+		try {
+			new CsvReader(new StringReader("")).config.setMaxRecordLength(0);
+			Assert.fail("Exception expected.");
+		}
+		catch (IllegalArgumentException e) {
+			Assert.assertEquals("Parameter max can not be less than 1.", e.getMessage());
+		}
+	}
+	
+	/** channels in non-blocking mode are rejected rather than polled in a busy loop */
+	@Test
+	public void test206() throws Exception {
+		Pipe pipe = Pipe.open();
+		try {
+			pipe.source().configureBlocking(false);
+			try {
+				new CsvReader(pipe.source(), StandardCharsets.UTF_8);
+				Assert.fail("Exception expected.");
+			}
+			catch (IllegalArgumentException e) {
+				Assert.assertEquals("Parameter channel can not be in non-blocking mode.", e.getMessage());
+			}
+			
+			pipe.source().configureBlocking(true);
+			pipe.sink().write(ByteBuffer.wrap("a,b\r\n".getBytes(StandardCharsets.UTF_8)));
+			pipe.sink().close();
+			CsvReader reader = new CsvReader(pipe.source(), StandardCharsets.UTF_8);
+			Assert.assertTrue(reader.readRecord());
+			Assert.assertEquals("b", reader.get(1));
+			Assert.assertFalse(reader.readRecord());
+			reader.close();
+		}
+		finally {
+			pipe.sink().close();
+			pipe.source().close();
+		}
+	}
+	
+	/** an error writing the buffered data on close is thrown rather than lost, unless an earlier write already reported one */
+	@Test
+	public void test207() throws Exception {
+		Writer failing = new Writer() {
+			@Override
+			public void write(char[] cbuf, int off, int len) throws IOException {
+				throw new IOException("disk full");
+			}
+			
+			@Override
+			public void flush() {
+			}
+			
+			@Override
+			public void close() {
+			}
+		};
+		
+		CsvWriter writer = new CsvWriter(failing);
+		writer.writeRecord(new String[] { "a", "b" });
+		try {
+			writer.close();
+			Assert.fail("Exception expected.");
+		}
+		catch (UncheckedIOException e) {
+			Assert.assertEquals("Buffered data could not be written on close: disk full", e.getMessage());
+			Assert.assertEquals("disk full", e.getCause().getMessage());
+		}
+		writer.close(); // already closed
+		
+		writer = new CsvWriter(failing);
+		writer.writeRecord(new String[] { "a", "b" });
+		try {
+			writer.flush();
+			Assert.fail("Exception expected.");
+		}
+		catch (IOException e) {
+			Assert.assertEquals("disk full", e.getMessage());
+		}
+		writer.close();
+	}
+	
+	/** write-behind: flush waits for a full ring under the fail-fast policy, and an interrupted close can be retried */
+	@Test
+	public void test208() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		StringBuilder written = new StringBuilder();
+		AtomicInteger closes = new AtomicInteger();
+		Writer stalled = new Writer() {
+			@Override
+			public void write(char[] cbuf, int off, int len) throws IOException {
+				try {
+					release.await();
+				}
+				catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+				synchronized (written) {
+					written.append(cbuf, off, len);
+				}
+			}
+			
+			@Override
+			public void flush() {
+			}
+			
+			@Override
+			public void close() {
+				closes.incrementAndGet();
+			}
+		};
+		
+		WriteBehindWriter writeBehind = new WriteBehindWriter(stalled, 2, 4, WriteBehindWriter.FullRingPolicy.FAIL_FAST);
+		writeBehind.write("abcdefgh"); // both buffers wait to be written
+		try {
+			writeBehind.write("i");
+			Assert.fail("Exception should have been thrown.");
+		}
+		catch (IOException ex) {
+			assertException(new IOException("All 2 write-behind buffers are waiting to be written."), ex);
+		}
+		
+		Thread releaser = new Thread(() -> {
+			try {
+				Thread.sleep(100);
+			}
+			catch (InterruptedException e) {
+				// release anyway
+			}
+			release.countDown();
+		});
+		releaser.start();
+		writeBehind.flush();
+		releaser.join();
+		synchronized (written) {
+			Assert.assertEquals("abcdefgh", written.toString());
+		}
+		writeBehind.close();
+		Assert.assertEquals(1, closes.get());
+		
+		CountDownLatch release2 = new CountDownLatch(1);
+		Writer stalled2 = new Writer() {
+			@Override
+			public void write(char[] cbuf, int off, int len) throws IOException {
+				try {
+					release2.await();
+				}
+				catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+			}
+			
+			@Override
+			public void flush() {
+			}
+			
+			@Override
+			public void close() {
+				closes.incrementAndGet();
+			}
+		};
+		
+		writeBehind = new WriteBehindWriter(stalled2, 2, 4, WriteBehindWriter.FullRingPolicy.BLOCK);
+		writeBehind.write("abcdefgh");
+		Thread.currentThread().interrupt();
+		try {
+			writeBehind.close();
+			Assert.fail("Exception should have been thrown.");
+		}
+		catch (InterruptedIOException ex) {
+			Assert.assertTrue(Thread.interrupted());
+		}
+		try {
+			writeBehind.write("x");
+			Assert.fail("Exception should have been thrown.");
+		}
+		catch (IOException ex) {
+			assertException(new IOException("Stream closed"), ex);
+		}
+		release2.countDown();
+		writeBehind.close(); // finishes closing
+		Assert.assertEquals(2, closes.get());
+		writeBehind.close();
+		Assert.assertEquals(2, closes.get());
+	}
+	
+	/** a failure part way through a batch is thrown after the records read before it are delivered */
+	@Test
+	public void test209() throws Exception {
+		Reader failing = new Reader() {
+			private boolean served = false;
+			
+			@Override
+			public int read(char[] cbuf, int off, int len) throws IOException {
+				if (served) {
+					throw new IOException("broken source");
+				}
+				served = true;
+				String data = "a,b\r\nc,d\r\ne,f\r\n";
+				data.getChars(0, data.length(), cbuf, off);
+				return data.length();
+			}
+			
+			@Override
+			public void close() {
+			}
+		};
+		
+		try (ConcurrentRecordSource source = new ConcurrentRecordSource(new CsvReader(failing), 10)) {
+			ConcurrentRecordSource.RecordBatch batch = source.nextBatch();
+			Assert.assertEquals(3, batch.size());
+			Assert.assertArrayEquals(new String[] { "e", "f" }, batch.get(2));
+			Assert.assertEquals(2L, batch.getRecordNumber(2));
+			source.release(batch);
+			
+			try {
+				source.nextBatch();
+				Assert.fail("Exception should have been thrown.");
+			}
+			catch (IOException ex) {
+				assertException(new IOException("broken source"), ex);
+			}
+			try {
+				source.nextBatch();
+				Assert.fail("Exception should have been thrown.");
+			}
+			catch (IOException ex) {
+				assertException(new IOException("This instance of the CsvReader class has already been closed."), ex);
+			}
+		}
+	}
+	
+	/** an error thrown by a dataset handler is thrown by forEach as it is */
+	@Test
+	public void test210() throws Exception {
+		Path directory = Files.createTempDirectory("yacsv-dataset");
+		Path first = directory.resolve("part-1.csv");
+		Path second = directory.resolve("part-2.csv");
+		Files.write(first, "a\r\nb\r\n".getBytes(StandardCharsets.UTF_8));
+		Files.write(second, "c\r\nd\r\n".getBytes(StandardCharsets.UTF_8));
+		
+		try {
+			DatasetReader dataset = new DatasetReader(directory, "*.csv").setParallelism(2);
+			AssertionError failed = new AssertionError("bad record");
+			try {
+				dataset.forEach((file, record) -> {
+					if (record.get(0).equals("d")) {
+						throw failed;
+					}
+				});
+				Assert.fail("Error should have been thrown.");
+			}
+			catch (AssertionError e) {
+				Assert.assertSame(failed, e);
+			}
+		}
+		finally {
+			Files.delete(first);
+			Files.delete(second);
+			Files.delete(directory);
+		}
+	}
+	
+	/** a file writer checks its parameters before truncating the file, and a failed close reports the lost data first */
+	@Test
+	public void test211() throws Exception {
+		Files.write(tempFile.toPath(), "keep".getBytes(StandardCharsets.UTF_8));
+		try {
+			new CsvWriter(tempFile.toPath(), ',', null);
+			Assert.fail("Exception should have been thrown.");
+		}
+		catch (IllegalArgumentException ex) {
+			assertException(new IllegalArgumentException("Parameter charset can not be null."), ex);
+		}
+		Assert.assertEquals("keep", new String(Files.readAllBytes(tempFile.toPath()), StandardCharsets.UTF_8));
+		
+		OutputStream broken = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("write failed");
+			}
+			
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				throw new IOException("write failed");
+			}
+			
+			@Override
+			public void close() throws IOException {
+				throw new IOException("close failed");
+			}
+		};
+		EncodingWriter writer = new EncodingWriter(broken, StandardCharsets.UTF_8);
+		writer.write("abc");
+		try {
+			writer.close();
+			Assert.fail("Exception should have been thrown.");
+		}
+		catch (IOException ex) {
+			assertException(new IOException("write failed"), ex);
+			Assert.assertEquals(1, ex.getSuppressed().length);
+			Assert.assertEquals("close failed", ex.getSuppressed()[0].getMessage());
+		}
+		writer.close();
+	}
+	
+	/** asynchronous file reads check their parameters before opening the file, and can be retried after an interrupt */
+	@Test
+	public void test212() throws Exception {
+		StringBuilder data = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			data.append(i).append(",\u00e9\u20ac").append(i).append("\r\n");
+		}
+		Files.write(tempFile.toPath(), data.toString().getBytes(StandardCharsets.UTF_8));
+		
+		try {
+			new AsyncFileReader(tempFile.toPath(), StandardCharsets.UTF_8, 0, 8192);
+			Assert.fail("Exception should have been thrown.");
+		}
+		catch (IllegalArgumentException ex) {
+			assertException(new IllegalArgumentException("Parameter readDepth can not be less than 1."), ex);
+		}
+		
+		AsyncFileReader source = new AsyncFileReader(tempFile.toPath(), StandardCharsets.UTF_8, 4, 16);
+		StringBuilder read = new StringBuilder();
+		char[] chars = new char[7];
+		for (;;) {
+			Thread.currentThread().interrupt(); // interrupts any read not yet complete
+			int count;
+			try {
+				count = source.read(chars, 0, chars.length);
+			}
+			catch (InterruptedIOException ex) {
+				continue; // the read is still outstanding, and is waited for again
+			}
+			finally {
+				Thread.interrupted();
+			}
+			if (count < 0) {
+				break;
+			}
+			read.append(chars, 0, count);
+		}
+		source.close();
+		
+		Assert.assertEquals(data.toString(), read.toString());
+	}
+	
+	/** checkpoints in UTF-16LE resume by byte offset, and charsets without exact byte counts give no byte offset */
+	@Test
+	public void test213() throws Exception {
+		StringBuilder data = new StringBuilder("id,name\r\n");
+		for (int i = 0; i < 3000; i++) {
+			data.append(i).append(",\u00e9\u20ac\ud83d\ude00").append(i).append("\r\n");
+		}
+		Path path = tempFile.toPath();
+		Files.write(path, data.toString().getBytes(StandardCharsets.UTF_16LE));
+		
+		CsvReader reader = new CsvReader(path, StandardCharsets.UTF_16LE);
+		Assert.assertTrue(reader.readHeaders());
+		for (int i = 0; i < 1500; i++) {
+			Assert.assertTrue(reader.readRecord());
+		}
+		CsvReader.Checkpoint checkpoint = reader.checkpoint();
+		reader.close();
+		Assert.assertEquals(2L * data.indexOf("1500,"), checkpoint.getByteOffset());
+		
+		reader = CsvReader.resume(path, StandardCharsets.UTF_16LE, checkpoint);
+		Assert.assertTrue(reader.readRecord());
+		Assert.assertEquals("1500", reader.get("id"));
+		Assert.assertEquals("\u00e9\u20ac\ud83d\ude001500", reader.get("name"));
+		reader.close();
+		
+		Files.write(path, data.toString().getBytes(StandardCharsets.UTF_16));
+		reader = new CsvReader(path, StandardCharsets.UTF_16);
+		Assert.assertTrue(reader.readHeaders());
+		Assert.assertTrue(reader.readRecord());
+		checkpoint = reader.checkpoint();
+		Assert.assertEquals(data.indexOf("1,"), checkpoint.getCharOffset());
+		Assert.assertEquals(-1L, checkpoint.getByteOffset());
+		reader.close();
+		try {
+			CsvReader.resume(path, StandardCharsets.UTF_16, checkpoint);
+			Assert.fail("Exception should have been thrown.");
+		}
+		catch (IllegalArgumentException ex) {
+			assertException(new IllegalArgumentException("Parameter checkpoint has no byte offset to resume from."), ex);
+		}
+	}
+	
+	/** a record batch can only be released once per use */
+	@Test
+	public void test214() throws Exception {
+		ConcurrentRecordSource source = new ConcurrentRecordSource(new CsvReader(new StringReader("a\r\nb\r\nc\r\n")), 1);
+		ConcurrentRecordSource.RecordBatch first = source.nextBatch();
+		source.release(first);
+		try {
+			source.release(first);
+			Assert.fail("Exception should have been thrown.");
+		}
+		catch (IllegalStateException ex) {
+			assertException(new IllegalStateException("The batch has already been released."), ex);
+		}
+		
+		ConcurrentRecordSource.RecordBatch second = source.nextBatch();
+		ConcurrentRecordSource.RecordBatch third = source.nextBatch();
+		Assert.assertSame(first, second);
+		Assert.assertNotSame(second, third);
+		Assert.assertEquals("b", second.get(0)[0]);
+		Assert.assertEquals("c", third.get(0)[0]);
+		source.release(second);
+		source.release(third);
+		Assert.assertNull(source.nextBatch());
+		source.close();
+	}
+	
+	/** an interrupted dataset read stops its files and calls no handler after it has thrown */
+	@Test
+	public void test215() throws Exception {
+		Path directory = Files.createTempDirectory("yacsv-dataset");
+		List<Path> created = new ArrayList<Path>();
+		StringBuilder data = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			data.append(i).append("\r\n");
+		}
+		for (int i = 0; i < 4; i++) {
+			Path file = directory.resolve("part-" + i + ".csv");
+			Files.write(file, data.toString().getBytes(StandardCharsets.UTF_8));
+			created.add(file);
+		}
+		
+		try {
+			DatasetReader dataset = new DatasetReader(directory, "*.csv").setParallelism(2);
+			AtomicLong calls = new AtomicLong();
+			CountDownLatch started = new CountDownLatch(1);
+			AtomicReference<Exception> thrown = new AtomicReference<Exception>();
+			
+			Thread reading = new Thread(() -> {
+				try {
+					dataset.forEach((file, record) -> {
+						calls.incrementAndGet();
+						started.countDown();
+						long end = System.nanoTime() + 1000000;
+						while (System.nanoTime() < end) {
+							// a slow handler, which ignores interrupts
+						}
+					});
+				}
+				catch (Exception e) {
+					thrown.set(e);
+				}
+			});
+			reading.start();
+			Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+			reading.interrupt();
+			reading.join(5000);
+			
+			Assert.assertFalse(reading.isAlive());
+			Assert.assertTrue(thrown.get() instanceof InterruptedIOException);
+			long callsOnReturn = calls.get();
+			Thread.sleep(50);
+			Assert.assertEquals(callsOnReturn, calls.get());
+			Assert.assertTrue(callsOnReturn < 8000);
+		}
+		finally {
+			for (Path file : created) {
+				Files.delete(file);
+			}
+			Files.delete(directory);
+		}
+	}
 }
@@ -0,0 +1,240 @@
+package com.nunn.yacsv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CsvPublisherTest {
+	
+	/** Records every signal as a line of text, in order. */
+	private static class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+		
+		final List<String> signals = new ArrayList<String>();
+		final long initialRequest;
+		Flow.Subscription subscription;
+		
+		RecordingSubscriber(long initialRequest) {
+			this.initialRequest = initialRequest;
+		}
+		
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			if (initialRequest > 0) {
+				subscription.request(initialRequest);
+			}
+		}
+		
+		@Override
+		public void onNext(T item) {
+			signals.add("next " + (item instanceof String[] ? String.join(",", (String[]) item) : itemOfBatch(item)));
+		}
+		
+		@Override
+		public void onError(Throwable throwable) {
+			signals.add("error " + throwable.getClass().getSimpleName() + ": " + throwable.getMessage());
+		}
+		
+		@Override
+		public void onComplete() {
+			signals.add("complete");
+		}
+		
+		private static String itemOfBatch(Object item) {
+			List<String> records = new ArrayList<String>();
+			for (Object record : (List<?>) item) {
+				records.add(String.join(",", (String[]) record));
+			}
+			return String.join("|", records);
+		}
+	
+	}
+	
+	private static void assertClosed(CsvReader reader) {
+		try {
+			reader.readRecord();
+			Assert.fail("Exception should have been thrown.");
+		}
+		catch (IOException ex) {
+			Assert.assertEquals("This instance of the CsvReader class has already been closed.", ex.getMessage());
+		}
+	}
+	
+	/** records are only parsed and signalled as far as requested */
+	@Test
+	public void test001() throws Exception {
+		CsvReader reader = new CsvReader(new StringReader("a,b\nc,d\ne,f\n"));
+		RecordingSubscriber<String[]> subscriber = new RecordingSubscriber<String[]>(2);
+		CsvPublisher.records(reader, Runnable::run).subscribe(subscriber);
+		
+		Assert.assertEquals(List.of("next a,b", "next c,d"), subscriber.signals);
+		Assert.assertEquals(1L, reader.getCurrentRecord());
+		
+		subscriber.subscription.request(1);
+		Assert.assertEquals(List.of("next a,b", "next c,d", "next e,f"), subscriber.signals);
+		
+		subscriber.subscription.request(Long.MAX_VALUE);
+		subscriber.subscription.request(Long.MAX_VALUE); // demand saturates
+		Assert.assertEquals(List.of("next a,b", "next c,d", "next e,f", "complete"), subscriber.signals);
+		assertClosed(reader);
+	}
+	
+	/** batches count as one item each against the demand */
+	@Test
+	public void test002() throws Exception {
+		CsvReader reader = new CsvReader(new StringReader("a\nb\nc\nd\ne\n"));
+		RecordingSubscriber<List<String[]>> subscriber = new RecordingSubscriber<List<String[]>>(1);
+		CsvPublisher.batches(reader, Runnable::run, 2).subscribe(subscriber);
+		
+		Assert.assertEquals(List.of("next a|b"), subscriber.signals);
+		
+		subscriber.subscription.request(5);
+		Assert.assertEquals(List.of("next a|b", "next c|d", "next e", "complete"), subscriber.signals);
+		
+		try {
+			CsvPublisher.batches(reader, Runnable::run, 0);
+			Assert.fail("Exception should have been thrown.");
+		}
+		catch (IllegalArgumentException ex) {
+			Assert.assertEquals("Parameter batchSize can not be less than 1.", ex.getMessage());
+		}
+	}
+	
+	/** an error follows the records read before it, and nothing follows an error */
+	@Test
+	public void test003() throws Exception {
+		Reader failing = new Reader() {
+			private boolean served = false;
+			
+			@Override
+			public int read(char[] cbuf, int off, int len) throws IOException {
+				if (served) {
+					throw new IOException("broken source");
+				}
+				served = true;
+				"a\nb\n".getChars(0, 4, cbuf, off);
+				return 4;
+			}
+			
+			@Override
+			public void close() {
+			}
+		};
+		
+		CsvReader reader = new CsvReader(failing);
+		RecordingSubscriber<String[]> subscriber = new RecordingSubscriber<String[]>(10);
+		CsvPublisher.records(reader, Runnable::run).subscribe(subscriber);
+		subscriber.subscription.request(10);
+		subscriber.subscription.cancel();
+		
+		Assert.assertEquals(List.of("next a", "next b", "error IOException: broken source"), subscriber.signals);
+		assertClosed(reader);
+		
+		reader = new CsvReader(new StringReader("a\nb\n"));
+		subscriber = new RecordingSubscriber<String[]>(1);
+		CsvPublisher.records(reader, Runnable::run).subscribe(subscriber);
+		subscriber.subscription.request(0);
+		subscriber.subscription.request(1);
+		
+		Assert.assertEquals(List.of("next a", "error IllegalArgumentException: Non-positive request: 0"), subscriber.signals);
+		assertClosed(reader);
+	}
+	
+	/** nothing is signalled after a cancel, the reader is closed, and a second subscriber is refused */
+	@Test
+	public void test004() throws Exception {
+		CsvReader reader = new CsvReader(new StringReader("a\nb\nc\n"));
+		CsvPublisher<String[]> publisher = CsvPublisher.records(reader, Runnable::run);
+		RecordingSubscriber<String[]> subscriber = new RecordingSubscriber<String[]>(1);
+		publisher.subscribe(subscriber);
+		
+		subscriber.subscription.cancel();
+		subscriber.subscription.request(5);
+		subscriber.subscription.cancel();
+		
+		Assert.assertEquals(List.of("next a"), subscriber.signals);
+		assertClosed(reader);
+		
+		RecordingSubscriber<String[]> second = new RecordingSubscriber<String[]>(1);
+		publisher.subscribe(second);
+		Assert.assertEquals(List.of("error IllegalStateException: This CsvPublisher already has a subscriber."), second.signals);
+	}
+	
+	/** a cancel interrupts a read blocked in the source */
+	@Test
+	public void test005() throws Exception {
+		Pipe pipe = Pipe.open();
+		pipe.sink().write(ByteBuffer.wrap("a,b\n".getBytes(StandardCharsets.UTF_8)));
+		
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			CsvReader reader = new CsvReader(pipe.source(), StandardCharsets.UTF_8);
+			CountDownLatch first = new CountDownLatch(1);
+			RecordingSubscriber<String[]> subscriber = new RecordingSubscriber<String[]>(2) {
+				@Override
+				public void onNext(String[] item) {
+					super.onNext(item);
+					first.countDown();
+				}
+			};
+			CsvPublisher.records(reader, executor).subscribe(subscriber);
+			
+			Assert.assertTrue(first.await(5, TimeUnit.SECONDS));
+			Thread.sleep(50); // let the second read block
+			subscriber.subscription.cancel();
+			
+			executor.shutdown();
+			Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+			Assert.assertEquals(List.of("next a,b"), subscriber.signals);
+			Assert.assertFalse(pipe.source().isOpen());
+		}
+		finally {
+			executor.shutdownNow();
+			pipe.sink().close();
+		}
+	}
+	
+	/** a subscriber throwing from onNext is treated as cancelled, and a rejected drain task is signalled as an error */
+	@Test
+	public void test006() throws Exception {
+		CsvReader reader = new CsvReader(new StringReader("a\nb\nc\n"));
+		RecordingSubscriber<String[]> subscriber = new RecordingSubscriber<String[]>(0) {
+			@Override
+			public void onNext(String[] item) {
+				super.onNext(item);
+				throw new IllegalStateException("subscriber failed");
+			}
+		};
+		CsvPublisher.records(reader, Runnable::run).subscribe(subscriber);
+		subscriber.subscription.request(3);
+		subscriber.subscription.request(3);
+		
+		Assert.assertEquals(List.of("next a"), subscriber.signals);
+		assertClosed(reader);
+		
+		reader = new CsvReader(new StringReader("a\n"));
+		RecordingSubscriber<String[]> rejected = new RecordingSubscriber<String[]>(1);
+		CsvPublisher.records(reader, task -> {
+			throw new RejectedExecutionException("no threads");
+		}).subscribe(rejected);
+		rejected.subscription.request(1);
+		
+		Assert.assertEquals(List.of("error RejectedExecutionException: no threads"), rejected.signals);
+		assertClosed(reader);
+	}
+	
+}